@@ -0,0 +1,52 @@
+package bguspl.set;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * Creates the game environments for the benchmarks: a headless user interface, no logging and no turn timeout (so
+ * that the dealer only wakes up for claims).
+ */
+public class BenchmarkEnv {
+
+    /**
+     * @param featureSize  - the number of values of each feature.
+     * @param featureCount - the number of features of each card.
+     * @param tableSize    - the number of slots on the table (a multiple of 3).
+     * @param players      - the number of (human) players.
+     * @param setFinder    - the set finding algorithm (see Config::setFinder).
+     * @return - the configuration.
+     */
+    public static Config config(int featureSize, int featureCount, int tableSize, int players, String setFinder) {
+        Properties properties = new Properties();
+        properties.setProperty("LogLevel", "OFF");
+        properties.setProperty("FeatureSize", Integer.toString(featureSize));
+        properties.setProperty("FeatureCount", Integer.toString(featureCount));
+        properties.setProperty("Rows", "3");
+        properties.setProperty("Columns", Integer.toString(tableSize / 3));
+        properties.setProperty("HumanPlayers", Integer.toString(players));
+        properties.setProperty("ComputerPlayers", "0");
+        properties.setProperty("SetFinder", setFinder);
+        properties.setProperty("RandomSeed", "42");
+        properties.setProperty("TurnTimeoutSeconds", "-1");
+        properties.setProperty("TableDelaySeconds", "0");
+        return new Config(logger(), properties);
+    }
+
+    /**
+     * @param config - the configuration.
+     * @return - a new game environment with the configuration.
+     */
+    public static Env env(Config config) {
+        return new Env(logger(), config, new HeadlessUserInterface(), new UtilImpl(config));
+    }
+
+    /**
+     * @return - the logger of the benchmarks (which logs nothing).
+     */
+    public static Logger logger() {
+        Logger logger = Logger.getLogger("SetBenchmarkLogger");
+        logger.setUseParentHandlers(false);
+        return logger;
+    }
+}
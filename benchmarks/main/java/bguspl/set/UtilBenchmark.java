@@ -0,0 +1,128 @@
+package bguspl.set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the card feature and set finding utilities, over the deck shape (featureSize ^ featureCount cards)
+ * and the number of cards searched (a table of 12 or 21 cards, or a full deck of 81).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+
+    @Param({"3", "4"})
+    public int featureSize;
+
+    @Param({"4", "5"})
+    public int featureCount;
+
+    @Param({"12", "21", "81"})
+    public int cards;
+
+    @Param({"completion", "combinations"})
+    public String setFinder;
+
+    private Util util;
+
+    /**
+     * Random distinct cards from the deck.
+     */
+    private int[] deck;
+
+    /**
+     * Random combinations of featureSize cards from deck (a power of 2 of them).
+     */
+    private int[][] combinations;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        Config config = BenchmarkEnv.config(featureSize, featureCount, 12, 2, setFinder);
+        util = new UtilImpl(config);
+
+        Random random = new Random(42);
+        int[] all = new int[config.deckSize];
+        for (int card = 0; card < all.length; ++card)
+            all[card] = card;
+        for (int i = all.length - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            int card = all[i];
+            all[i] = all[j];
+            all[j] = card;
+        }
+        deck = new int[Math.min(cards, all.length)];
+        System.arraycopy(all, 0, deck, 0, deck.length);
+
+        combinations = new int[1024][];
+        for (int i = 0; i < combinations.length; ++i) {
+            int start = random.nextInt(deck.length - featureSize + 1);
+            combinations[i] = new int[featureSize];
+            System.arraycopy(deck, start, combinations[i], 0, featureSize);
+        }
+    }
+
+    private int nextCard() {
+        if (++next >= deck.length) next = 0;
+        return deck[next];
+    }
+
+    @Benchmark
+    public int[] cardToFeatures() {
+        return util.cardToFeatures(nextCard());
+    }
+
+    @Benchmark
+    public int cardFeature() {
+        int card = nextCard();
+        int sum = 0;
+        for (int i = 0; i < featureCount; ++i)
+            sum += util.cardFeature(card, i);
+        return sum;
+    }
+
+    @Benchmark
+    public boolean testSet() {
+        return util.testSet(combinations[next++ & (combinations.length - 1)]);
+    }
+
+    @Benchmark
+    public List<int[]> findOneSet() {
+        return util.findSets(deck, 1);
+    }
+
+    @Benchmark
+    public List<int[]> findAllSets() {
+        return util.findSets(deck, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public int[] findAllSetsForkJoin() {
+        return util.findAllSets(deck);
+    }
+
+    @Benchmark
+    public int countSetsStreaming() {
+        int[] count = new int[1];
+        util.forEachSet(deck, set -> count[0]++); // single threaded for these deck sizes
+        return count[0];
+    }
+}
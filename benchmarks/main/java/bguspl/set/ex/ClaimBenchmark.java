@@ -0,0 +1,137 @@
+package bguspl.set.ex;
+
+import bguspl.set.BenchmarkEnv;
+import bguspl.set.Config;
+import bguspl.set.Env;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End to end benchmark of claims: each benchmark thread is a player that submits claims to a running dealer and waits
+ * for the verdicts. The claims are snapshots of non-sets on the table, so the dealer validates and tests each one
+ * against the table but never changes the table, and the game never ends. The number of contending players is the
+ * number of benchmark threads (4 by default, change with -t).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ClaimBenchmark {
+
+    /**
+     * A game whose dealer thread checks the claims.
+     */
+    @State(Scope.Benchmark)
+    public static class Game {
+
+        @Param({"3", "4"})
+        public int featureSize;
+
+        @Param({"12", "21"})
+        public int tableSize;
+
+        /**
+         * The number of players of the game (benchmark threads play as players id % players).
+         */
+        @Param({"64"})
+        public int players;
+
+        Env env;
+        Dealer dealer;
+        Thread dealerThread;
+
+        /**
+         * Combinations of slots that hold no set, and the cards in them (respectively).
+         */
+        int[][] slots;
+        int[][] cards;
+
+        @Setup
+        public void setup() throws InterruptedException {
+            Config config = BenchmarkEnv.config(featureSize, 4, tableSize, players, "completion");
+            env = BenchmarkEnv.env(config);
+            Table table = new Table(env);
+            Player[] players = new Player[config.players];
+            dealer = new Dealer(env, table, players);
+            for (int i = 0; i < players.length; i++)
+                players[i] = new Player(env, dealer, table, i, true);
+            dealerThread = env.newThread(dealer, "dealer");
+            dealerThread.start();
+            while (table.countCards() < config.tableSize)
+                Thread.sleep(1);
+
+            List<int[]> nonSets = new ArrayList<>();
+            int[] combination = new int[featureSize];
+            collectNonSets(table, combination, 0, 0, nonSets);
+            slots = nonSets.toArray(new int[0][]);
+            cards = new int[slots.length][featureSize];
+            for (int i = 0; i < slots.length; ++i)
+                for (int j = 0; j < featureSize; ++j)
+                    cards[i][j] = table.cardAt(slots[i][j]);
+        }
+
+        private void collectNonSets(Table table, int[] combination, int index, int first, List<int[]> nonSets) {
+            if (index == combination.length) {
+                int[] combinationCards = new int[combination.length];
+                for (int j = 0; j < combination.length; ++j)
+                    combinationCards[j] = table.cardAt(combination[j]);
+                if (!env.util.testSet(combinationCards))
+                    nonSets.add(combination.clone());
+                return;
+            }
+            for (int slot = first; slot < tableSize && nonSets.size() < 1024; ++slot) {
+                combination[index] = slot;
+                collectNonSets(table, combination, index + 1, slot + 1, nonSets);
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws InterruptedException {
+            dealer.terminate();
+            dealerThread.join();
+        }
+    }
+
+    /**
+     * A benchmark thread playing as one of the players.
+     */
+    @State(Scope.Thread)
+    public static class Claimant {
+
+        private static final AtomicInteger ids = new AtomicInteger();
+
+        int id;
+        int next;
+
+        @Setup
+        public void setup(Game game) {
+            id = ids.getAndIncrement() % game.players;
+        }
+    }
+
+    @Benchmark
+    public Claim.Verdict claim(Game game, Claimant claimant) throws InterruptedException {
+        if (++claimant.next >= game.slots.length) claimant.next = 0;
+        Claim claim = new Claim(claimant.id, game.slots[claimant.next], game.cards[claimant.next], game.env.clock);
+        game.dealer.claim(claim);
+        return claim.awaitVerdict();
+    }
+}
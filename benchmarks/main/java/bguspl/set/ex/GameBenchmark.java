@@ -0,0 +1,67 @@
+package bguspl.set.ex;
+
+import bguspl.set.BenchmarkEnv;
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.HeadlessUserInterface;
+import bguspl.set.SystemClock;
+import bguspl.set.UserInterface;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of opening one more game in a GameHost: the per-game state (Env, Table, Dealer and players) on top of the
+ * state all games share (the configuration, Util, user interface and freeze scheduler). With the gc profiler of
+ * BenchmarkMain, gc.alloc.rate.norm is the footprint of a game in bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+
+    @Param({"4", "6"})
+    public int featureCount;
+
+    @Param({"4"})
+    public int players;
+
+    private Config config;
+    private Util util;
+    private UserInterface ui;
+    private FreezeScheduler freezes;
+
+    @Setup
+    public void setup() {
+        config = BenchmarkEnv.config(3, featureCount, 12, players, "completion");
+        util = new UtilImpl(config);
+        ui = new HeadlessUserInterface();
+        freezes = new FreezeScheduler(new SystemClock(false), BenchmarkEnv.logger()); // never started
+    }
+
+    @Benchmark
+    public Dealer openGame() {
+        Env env = new Env(BenchmarkEnv.logger(), config, ui, util, 42, new SystemClock(false));
+        Table table = new Table(env);
+        Player[] players = new Player[config.players];
+        Dealer dealer = new Dealer(env, table, players, freezes);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, true);
+        return dealer;
+    }
+}
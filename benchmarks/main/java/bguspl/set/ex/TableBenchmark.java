@@ -0,0 +1,80 @@
+package bguspl.set.ex;
+
+import bguspl.set.BenchmarkEnv;
+import bguspl.set.Config;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of replacing a card on a full table (removeCard followed by placeCard, which also update the set counts
+ * of the table and of the cards in play), and of the queries the dealer makes after each change.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableBenchmark {
+
+    @Param({"3", "4"})
+    public int featureSize;
+
+    @Param({"4", "5"})
+    public int featureCount;
+
+    @Param({"12", "21"})
+    public int tableSize;
+
+    private Table table;
+
+    /**
+     * The cards that are not on the table, in the order they are placed.
+     */
+    private IntDeque deck;
+
+    private int slot;
+
+    @Setup
+    public void setup() {
+        Config config = BenchmarkEnv.config(featureSize, featureCount, tableSize, 2, "completion");
+        table = new Table(BenchmarkEnv.env(config));
+        deck = new IntDeque(config.deckSize);
+        for (int card = 0; card < config.deckSize; ++card)
+            deck.addLast(card);
+        deck.shuffle(new Random(42));
+        for (int slot = 0; slot < config.tableSize; ++slot)
+            table.placeCard(deck.removeFirst(), slot);
+    }
+
+    @Benchmark
+    public int replaceCard() {
+        if (++slot >= tableSize) slot = 0;
+        deck.addLast(table.cardAt(slot));
+        table.removeCard(slot);
+        table.placeCard(deck.removeFirst(), slot);
+        return table.countCards();
+    }
+
+    @Benchmark
+    public int setsOnTable() {
+        return table.setsOnTable();
+    }
+
+    @Benchmark
+    public int setsInPlay() {
+        return table.setsInPlay();
+    }
+}
@@ -0,0 +1,181 @@
+package bguspl.set;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * A log handler that writes to a file asynchronously. Logging threads only put the records in a lock-free ring
+ * buffer, and a background writer thread formats them and appends them to the file in batches (one write to the file
+ * per batch). A logging thread waits only when the buffer is full.
+ *
+ * @inv head <= tail <= head + capacity
+ */
+public final class AsyncFileHandler extends Handler {
+
+    /**
+     * The buffered records: the record at position p is in records[p & mask] once sequences[p & mask] == p + 1.
+     */
+    private final LogRecord[] records;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    /**
+     * The position of the next record to add (claimed by the logging threads).
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The position of the next record to write (changed by the writer thread only).
+     */
+    private volatile long head;
+
+    /**
+     * The position up to which the records were written to the file.
+     */
+    private volatile long written;
+
+    private final Writer out;
+    private final Thread writerThread;
+
+    /**
+     * True iff the writer thread is about to park (so logging threads should unpark it).
+     */
+    private volatile boolean idle;
+
+    private volatile boolean closed;
+
+    /**
+     * @param filename - the path of the log file.
+     * @param capacity - the number of records the buffer can hold (rounded up to a power of 2).
+     */
+    public AsyncFileHandler(String filename, int capacity) throws IOException {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        records = new LogRecord[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; ++i)
+            sequences.set(i, i);
+        mask = size - 1;
+        out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename), StandardCharsets.UTF_8), 1 << 16);
+        setFormatter(new SimpleFormatter());
+        writerThread = new Thread(this::writeLoop, "log writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) return;
+        long position;
+        while (true) {
+            position = tail.get();
+            long sequence = sequences.get((int) position & mask);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) break;
+            } else if (sequence < position) { // the buffer is full: let the writer catch up
+                LockSupport.unpark(writerThread);
+                Thread.onSpinWait();
+            }
+        }
+        records[(int) position & mask] = record;
+        sequences.lazySet((int) position & mask, position + 1);
+        if (idle) LockSupport.unpark(writerThread);
+    }
+
+    /**
+     * Waits until all records published before the call are written to the file.
+     */
+    @Override
+    public void flush() {
+        long target = tail.get();
+        while (written < target && writerThread.isAlive()) {
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        closed = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException ignored) {
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        }
+    }
+
+    /**
+     * The writer thread: writes all available records as one batch, or parks if there are none.
+     */
+    private void writeLoop() {
+        while (!closed || head < tail.get()) {
+            long end = head;
+            LogRecord record;
+            while (end - head < records.length && (record = take(end)) != null) {
+                write(record);
+                ++end;
+            }
+            if (end != head) {
+                head = end;
+                try {
+                    out.flush();
+                } catch (IOException e) {
+                    reportError(null, e, ErrorManager.FLUSH_FAILURE);
+                }
+                written = end;
+                continue;
+            }
+            idle = true;
+            if (!available(head) && !closed) // check again, a logging thread may have missed the idle flag
+                LockSupport.parkNanos(this, 100_000_000);
+            idle = false;
+        }
+    }
+
+    /**
+     * @param position - the position of a record.
+     * @return - true iff the record was added to the buffer.
+     */
+    private boolean available(long position) {
+        return sequences.get((int) position & mask) == position + 1;
+    }
+
+    /**
+     * Takes a record out of the buffer (writer thread only).
+     *
+     * @param position - the position of the record.
+     * @return - the record, or null if it was not added yet.
+     */
+    private LogRecord take(long position) {
+        if (!available(position)) return null;
+        int index = (int) position & mask;
+        LogRecord record = records[index];
+        records[index] = null;
+        sequences.lazySet(index, position + records.length);
+        return record;
+    }
+
+    private void write(LogRecord record) {
+        try {
+            out.write(getFormatter().format(record));
+        } catch (IOException | RuntimeException e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package bguspl.set;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * The card images of the user interface, decoded once and pre-scaled to the cell size (config.cellWidth x
+ * config.cellHeight) in the pixel format of the screen, so drawing a card is a plain copy.
+ * <p>
+ * Decks of up to config.cardCacheSize cards are decoded eagerly, in parallel, when the atlas is created. The images of
+ * larger decks are decoded on first use and kept in an LRU cache of config.cardCacheSize images (the images of the
+ * cards on the table stay referenced by the table grid, so evicting them only means they are decoded again the next
+ * time they are dealt).
+ */
+class CardAtlas {
+
+    private final Config config;
+    private final GraphicsConfiguration graphics;
+    private final Image emptyCard;
+
+    /**
+     * All card images (eager decks), or null.
+     */
+    private final Image[] deck;
+
+    /**
+     * The recently used card images (lazy decks), or null. Guarded by itself.
+     */
+    private final Map<Integer, Image> cache;
+
+    /**
+     * @param config - the game configuration.
+     */
+    CardAtlas(Config config) {
+        this.config = config;
+        graphics = GraphicsEnvironment.isHeadless() ? null
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        emptyCard = load("cards/empty_card.png");
+        if (config.deckSize <= config.cardCacheSize) {
+            deck = new Image[config.deckSize];
+            IntStream.range(0, config.deckSize).parallel().forEach(card -> deck[card] = load(filename(card)));
+            cache = null;
+        } else {
+            deck = null;
+            cache = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Image> eldest) {
+                    return size() > config.cardCacheSize;
+                }
+            };
+        }
+    }
+
+    /**
+     * @return - the image of an empty slot.
+     */
+    Image emptyCard() {
+        return emptyCard;
+    }
+
+    /**
+     * @param card - the card (-1 for an empty slot).
+     * @return - the image of the card, decoded now if it is not cached.
+     */
+    Image card(int card) {
+        if (card == -1) return emptyCard;
+        if (deck != null) return deck[card];
+        synchronized (cache) {
+            Image image = cache.get(card);
+            if (image != null) return image;
+        }
+        Image image = load(filename(card)); // outside the lock, another thread may decode the same card meanwhile
+        synchronized (cache) {
+            cache.putIfAbsent(card, image);
+        }
+        return image;
+    }
+
+    /**
+     * Decodes the image of a card in the background if it is not cached, so it is ready when it is shown.
+     *
+     * @param card - the card.
+     */
+    void prefetch(int card) {
+        if (deck != null) return;
+        synchronized (cache) {
+            if (cache.containsKey(card)) return;
+        }
+        ForkJoinPool.commonPool().execute(() -> card(card));
+    }
+
+    private String filename(int card) {
+        return "cards/" + UserInterfaceSwing.intInBaseToPaddedString(card, config.featureCount, config.featureSize) + ".png";
+    }
+
+    /**
+     * Decodes an image resource and scales it to the cell size.
+     */
+    private Image load(String filename) {
+        URL imageResource = getClass().getClassLoader().getResource(filename);
+        if (imageResource == null)
+            throw new RuntimeException(new FileNotFoundException(filename));
+        BufferedImage source;
+        try {
+            source = ImageIO.read(imageResource);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        BufferedImage tile = graphics != null
+                ? graphics.createCompatibleImage(config.cellWidth, config.cellHeight, source.getTransparency())
+                : new BufferedImage(config.cellWidth, config.cellHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = tile.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(source, 0, 0, config.cellWidth, config.cellHeight, null);
+        g.dispose();
+        return tile;
+    }
+}
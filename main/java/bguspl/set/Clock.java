@@ -0,0 +1,65 @@
+package bguspl.set;
+
+/**
+ * The source of time of a game, and the scheduler of its threads. All time related calls of the game entities (reading
+ * the time, sleeping and waiting for other threads) go through the clock, so that a game can run either in real time
+ * (SystemClock) or in a deterministic simulation (SimulatedClock).
+ */
+public interface Clock {
+
+    /**
+     * @param config     - the game configuration.
+     * @param randomSeed - the seed of the game.
+     * @return - a new clock of the kind selected by the configuration.
+     */
+    static Clock create(Config config, long randomSeed) {
+        return config.simulatedClock ? new SimulatedClock(randomSeed) : new SystemClock(config.virtualThreads);
+    }
+
+    /**
+     * @return - the current time in milliseconds.
+     */
+    long millis();
+
+    /**
+     * Creates (without starting) a thread for a game entity.
+     *
+     * @param task - the code the thread runs.
+     * @param name - the name of the thread.
+     * @return - the new thread.
+     */
+    Thread newThread(Runnable task, String name);
+
+    /**
+     * Blocks the current thread until it is unparked or the deadline passes. Like LockSupport::park, it may also return
+     * spuriously, so callers must check their condition in a loop.
+     *
+     * @param deadline - the time (see millis) to wake up at, or -1 to wait until unparked.
+     */
+    void park(long deadline);
+
+    /**
+     * Wakes up a thread blocked in park, or makes its next call to park return immediately.
+     *
+     * @param thread - the thread to unpark (ignored if null).
+     */
+    void unpark(Thread thread);
+
+    /**
+     * Waits until a thread created by newThread is done.
+     *
+     * @param thread - the thread to wait for.
+     */
+    void join(Thread thread) throws InterruptedException;
+
+    /**
+     * Blocks the current thread for the given time.
+     *
+     * @param millis - the time to sleep in milliseconds.
+     */
+    default void sleep(long millis) throws InterruptedException {
+        long deadline = millis() + millis;
+        while (millis() < deadline)
+            park(deadline);
+    }
+}
@@ -36,6 +36,28 @@ public class Config {
      */
     public final int deckSize;
 
+    /**
+     * Whether each card fits in a single 64 bit word with one bit per feature value (i.e. featureSize is 3 and there
+     * are at most 21 features), which allows testing sets with a few bitwise operations
+     */
+    public final boolean packedFeatures;
+
+    /**
+     * The algorithm used for finding sets: "completion" computes the card completing every combination of
+     * featureSize - 1 cards and looks it up, "combinations" tests every combination of featureSize cards
+     */
+    public final String setFinder;
+
+    /**
+     * The seed for the dealer's random number generator (random if not configured)
+     */
+    public final long randomSeed;
+
+    /**
+     * The file to write a binary journal of the game events to (no journal if empty)
+     */
+    public final String journalFile;
+
     /**
      * The number of human players in the game.
      */
@@ -46,11 +68,48 @@ public class Config {
      */
     public final int computerPlayers;
 
+    /**
+     * How the computer players choose their key presses: at random ("random"), or by finding a set on the table with a
+     * human-like reaction time and some mistakes ("easy", "medium" or "hard")
+     */
+    public final String computerStrategy;
+
+    /**
+     * The time a solving computer player takes to react to the table, overriding the default of its level (-1 for the
+     * default)
+     */
+    public final long computerReactionMillis;
+
+    /**
+     * What happens to a key press when featureSize presses of the player are already waiting: it is dropped ("drop"),
+     * or coalesced with the other overflowing presses, a second press of the same slot cancelling the first
+     * ("coalesce", for tables of up to 64 slots)
+     */
+    public final boolean coalesceInput;
+
     /**
      * The total number of players (human + computer) in the game
      */
     public final int players;
 
+    /**
+     * Whether the player and computer (AI) threads are virtual threads ("virtual" execution mode) or platform threads
+     * ("platform" execution mode)
+     */
+    public final boolean virtualThreads;
+
+    /**
+     * Whether the game runs in simulated time, one thread at a time in an order chosen by the random seed ("simulated"
+     * clock), or in real time ("system" clock)
+     */
+    public final boolean simulatedClock;
+
+    /**
+     * Whether to run without a display, only counting the game events ("headless" user interface), or with the Swing
+     * user interface ("swing")
+     */
+    public final boolean headless;
+
     /**
      * Whether to print out hints to the console or not
      */
@@ -77,10 +136,16 @@ public class Config {
     public final long pointFreezeMillis;
 
     /**
-     * The number of milliseconds to delay before removing/placing a card on the table
+     * The number of milliseconds the user interface waits between showing consecutive card placements/removals
+     * (the table itself is updated immediately)
      */
     public final long tableDelayMillis;
 
+    /**
+     * The number of times a second the user interface applies the updates of the game (UI only)
+     */
+    public final int frameRate;
+
     /**
      * The number of milliseconds to pause at the end of the game before closing
      */
@@ -117,6 +182,12 @@ public class Config {
      */
     public final int cellHeight;
 
+    /**
+     * The number of card images the user interface keeps decoded (all of them are decoded at startup if the deck is not
+     * larger, otherwise they are decoded on first use and the least recently used are evicted)
+     */
+    public final int cardCacheSize;
+
     /**
      * The Width (in pixeks) of player name cell
      */
@@ -197,11 +268,48 @@ public class Config {
         featureSize = Integer.parseInt(properties.getProperty("FeatureSize", "3"));
         featureCount = Integer.parseInt(properties.getProperty("FeatureCount", "4"));
         deckSize = (int) Math.pow(featureSize, featureCount);
+        packedFeatures = featureSize == 3 && featureSize * featureCount <= Long.SIZE;
+        String finder = properties.getProperty("SetFinder", "completion").trim().toLowerCase();
+        if (!finder.equals("completion") && !finder.equals("combinations")) {
+            logger.severe("warning: unknown set finder " + finder + ", using completion.");
+            finder = "completion";
+        }
+        if (finder.equals("completion") && featureSize < 3) {
+            logger.severe("warning: completion set finder requires a feature size of at least 3, using combinations.");
+            finder = "combinations";
+        }
+        setFinder = finder;
 
         // gameplay settings
+        String seed = properties.getProperty("RandomSeed", "");
+        randomSeed = seed.trim().isEmpty() ? System.nanoTime() : Long.parseLong(seed.trim());
+        journalFile = properties.getProperty("JournalFile", "").trim();
         humanPlayers = Integer.parseInt(properties.getProperty("HumanPlayers", "2"));
         computerPlayers = Integer.parseInt(properties.getProperty("ComputerPlayers", "0"));
         players = humanPlayers + computerPlayers;
+        String strategy = properties.getProperty("ComputerStrategy", "random").trim().toLowerCase();
+        if (!Arrays.asList("random", "easy", "medium", "hard").contains(strategy)) {
+            logger.severe("warning: unknown computer strategy " + strategy + ", using random.");
+            strategy = "random";
+        }
+        computerStrategy = strategy;
+        computerReactionMillis = (long) (Double.parseDouble(properties.getProperty("ComputerReactionSeconds", "-1")) * 1000.0);
+        String inputOverflow = properties.getProperty("InputOverflow", "drop").trim().toLowerCase();
+        if (!inputOverflow.equals("drop") && !inputOverflow.equals("coalesce"))
+            logger.severe("warning: unknown input overflow policy " + inputOverflow + ", dropping.");
+        coalesceInput = inputOverflow.equals("coalesce");
+        String executionMode = properties.getProperty("ExecutionMode", "platform").trim().toLowerCase();
+        if (!executionMode.equals("platform") && !executionMode.equals("virtual"))
+            logger.severe("warning: unknown execution mode " + executionMode + ", using platform threads.");
+        virtualThreads = executionMode.equals("virtual");
+        String clock = properties.getProperty("Clock", "system").trim().toLowerCase();
+        if (!clock.equals("system") && !clock.equals("simulated"))
+            logger.severe("warning: unknown clock " + clock + ", using the system clock.");
+        simulatedClock = clock.equals("simulated");
+        String userInterface = properties.getProperty("UserInterface", "swing").trim().toLowerCase();
+        if (!userInterface.equals("swing") && !userInterface.equals("headless"))
+            logger.severe("warning: unknown user interface " + userInterface + ", using swing.");
+        headless = userInterface.equals("headless");
 
         hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
         turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
@@ -209,6 +317,7 @@ public class Config {
         pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
         penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
         tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
+        frameRate = Integer.parseInt(properties.getProperty("FrameRate", "60"));
         endGamePauseMillies = (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
 
         // ui settings
@@ -221,6 +330,7 @@ public class Config {
         tableSize = rows * columns;
         cellWidth = Integer.parseInt(properties.getProperty("CellWidth", "258"));
         cellHeight = Integer.parseInt(properties.getProperty("CellHeight", "167"));
+        cardCacheSize = Integer.parseInt(properties.getProperty("CardCacheSize", "256"));
         playerCellWidth = Integer.parseInt(properties.getProperty("PlayerCellWidth", "300"));
         playerCellHeight = Integer.parseInt(properties.getProperty("PlayerCellHeight", "40"));
         fontSize = Integer.parseInt(properties.getProperty("FontSize", "40"));
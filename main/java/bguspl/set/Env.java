@@ -9,10 +9,52 @@ public class Env {
     public final UserInterface ui;
     public final Util util;
 
+    /**
+     * The seed of the game's randomness (config.randomSeed unless the game was given its own seed).
+     */
+    public final long randomSeed;
+
+    /**
+     * The source of time and the scheduler of the game's threads.
+     */
+    public final Clock clock;
+
+    /**
+     * The journal of the game events (null if the game is not journaled).
+     */
+    public final Journal journal;
+
     public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, config.randomSeed);
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, long randomSeed) {
+        this(logger, config, ui, util, randomSeed, Clock.create(config, randomSeed));
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, long randomSeed, Clock clock) {
+        this(logger, config, ui, util, randomSeed, clock, null);
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, long randomSeed, Clock clock,
+               Journal journal) {
         this.logger = logger;
         this.config = config;
         this.ui = ui;
         this.util = util;
+        this.randomSeed = randomSeed;
+        this.clock = clock;
+        this.journal = journal;
+    }
+
+    /**
+     * Creates (without starting) a thread for a game entity (see Clock::newThread).
+     *
+     * @param task - the code the thread runs.
+     * @param name - the name of the thread.
+     * @return - the new thread.
+     */
+    public Thread newThread(Runnable task, String name) {
+        return clock.newThread(task, name);
     }
 }
@@ -0,0 +1,239 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.FreezeScheduler;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+
+/**
+ * Hosts any number of independent games in one process, without a user interface. All games share the configuration,
+ * the precomputed card features (Util), the logger and the thread scheduler (with ExecutionMode=virtual all game
+ * threads run on the JVM's virtual thread carriers), while each game has its own Env, Table, Dealer and players.
+ * Games in real time also share one freeze scheduler thread (a game in simulated time runs on its own clock, so it
+ * keeps its own).
+ * If a journal file is configured, game i is journaled to the file name followed by "." and i.
+ */
+public class GameHost {
+
+    /**
+     * A game running in the host.
+     */
+    public class Game {
+
+        /**
+         * The id of the game (unique within the host).
+         */
+        public final int id;
+
+        /**
+         * The game environment object (shared with the other games except for the random seed, clock and journal).
+         */
+        public final Env env;
+
+        private final Table table;
+        private final Dealer dealer;
+        private final Player[] players;
+        private final Thread dealerThread;
+
+        private Game(int id, long randomSeed) {
+            this.id = id;
+            Clock clock = Clock.create(config, randomSeed);
+            Journal journal = null;
+            if (!config.journalFile.isEmpty()) {
+                try {
+                    journal = new Journal(config.journalFile + "." + id, config, clock, ui);
+                } catch (IOException e) {
+                    logger.severe("error creating journal of game " + id + ": " + e.getMessage());
+                }
+            }
+            env = new Env(logger, config, journal != null ? journal : ui, util, randomSeed, clock, journal);
+            table = new Table(env);
+            players = new Player[config.players];
+            dealer = new Dealer(env, table, players, freezes);
+            for (int i = 0; i < players.length; i++)
+                players[i] = new Player(env, dealer, table, i, i < config.humanPlayers);
+            dealerThread = env.newThread(() -> {
+                try {
+                    dealer.run();
+                } finally {
+                    games.remove(id);
+                    if (env.journal != null) try {
+                        env.journal.close();
+                    } catch (IOException e) {
+                        logger.severe("error closing journal of game " + id + ": " + e.getMessage());
+                    }
+                }
+            }, "dealer-" + id);
+        }
+
+        /**
+         * Forwards a key press of a human player.
+         *
+         * @param player - the id of the player.
+         * @param slot   - the slot corresponding to the key pressed.
+         */
+        public void keyPressed(int player, int slot) {
+            players[player].keyPressed(slot);
+        }
+
+        /**
+         * @return - the current score of each player.
+         */
+        public int[] scores() {
+            int[] scores = new int[players.length];
+            for (int i = 0; i < players.length; i++)
+                scores[i] = players[i].score();
+            return scores;
+        }
+
+        /**
+         * @return - true iff the game has not ended yet.
+         */
+        public boolean isRunning() {
+            return dealerThread.isAlive();
+        }
+
+        /**
+         * Waits until the game ends.
+         */
+        public void awaitEnd() throws InterruptedException {
+            dealerThread.join();
+        }
+
+        /**
+         * Terminates the game and waits until all of its threads are done.
+         */
+        public void close() throws InterruptedException {
+            dealer.terminate();
+            dealerThread.join();
+        }
+    }
+
+    private final Logger logger;
+    private final Config config;
+    private final Util util;
+
+    /**
+     * The user interface of all games, which only logs the game events (or only counts them, if headless).
+     */
+    private final UserInterface ui;
+
+    /**
+     * The games that did not end yet, by id.
+     */
+    private final Map<Integer, Game> games = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * The freeze scheduler of all games, and its thread (null if the games run in simulated time).
+     */
+    private final FreezeScheduler freezes;
+    private final Thread freezeThread;
+
+    /**
+     * The source of the games' random seeds.
+     */
+    private final SplittableRandom seeds;
+
+    public GameHost(Logger logger, Config config) {
+        this.logger = logger;
+        this.config = config;
+        this.util = new UtilImpl(config);
+        this.ui = config.headless ? new HeadlessUserInterface() : new UserInterfaceDecorator(logger, util, null);
+        this.seeds = new SplittableRandom(config.randomSeed);
+        if (config.simulatedClock) {
+            freezes = null;
+            freezeThread = null;
+        } else {
+            Clock clock = Clock.create(config, config.randomSeed);
+            freezes = new FreezeScheduler(clock, logger);
+            freezeThread = clock.newThread(freezes, "freezes");
+            freezeThread.start();
+        }
+        if (!config.virtualThreads && !config.simulatedClock)
+            logger.severe("warning: hosting games with platform threads, use ExecutionMode=virtual for many games.");
+    }
+
+    /**
+     * Creates a new game and starts its dealer.
+     *
+     * @return - the new game.
+     */
+    public Game open() {
+        long randomSeed;
+        synchronized (seeds) {
+            randomSeed = seeds.nextLong();
+        }
+        Game game = new Game(nextId.getAndIncrement(), randomSeed);
+        games.put(game.id, game);
+        game.dealerThread.start();
+        return game;
+    }
+
+    /**
+     * @param id - the id of the game.
+     * @return - the game, or null if there is no such game or it has ended.
+     */
+    public Game game(int id) {
+        return games.get(id);
+    }
+
+    /**
+     * @return - the games that did not end yet.
+     */
+    public Collection<Game> games() {
+        return games.values();
+    }
+
+    /**
+     * Terminates all games that did not end yet, and the freeze scheduler (no games can be opened afterwards).
+     */
+    public void shutdown() throws InterruptedException {
+        for (Game game : new ArrayList<>(games.values()))
+            game.close();
+        if (freezes != null) {
+            freezes.terminate();
+            freezeThread.join();
+        }
+    }
+
+    /**
+     * Runs a number of games (given as the first argument, 1 by default) concurrently until they all end.
+     *
+     * @param args - the number of games.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        Logger logger = Main.initLogger();
+        Config config = new Config(logger, "config.properties");
+        GameHost host = new GameHost(logger, config);
+
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        List<Game> started = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            started.add(host.open());
+        for (Game game : started)
+            game.awaitEnd();
+        host.shutdown();
+
+        int points = 0;
+        for (Game game : started)
+            for (int score : game.scores())
+                points += score;
+        logger.severe("hosted " + count + " games, " + points + " points scored");
+        if (host.ui instanceof HeadlessUserInterface) logger.severe("headless games: " + host.ui);
+        System.out.println("Hosted " + count + " games, " + points + " points scored.");
+        for (Handler h : logger.getHandlers()) h.flush();
+    }
+}
@@ -0,0 +1,144 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A user interface that displays nothing and only counts the game events, for running games with no display (load
+ * tests, benchmarks and CI). Unlike UserInterfaceDecorator it neither logs nor spins, so every call costs one counter
+ * increment at most. One instance may be shared by several games, in which case the counters are their totals: they
+ * are LongAdders, so the threads of many games incrementing them at once do not contend on one word.
+ */
+public class HeadlessUserInterface implements UserInterface {
+
+    private final LongAdder cardsPlaced = new LongAdder();
+    private final LongAdder cardsRemoved = new LongAdder();
+    private final LongAdder tokensPlaced = new LongAdder();
+    private final LongAdder tokensRemoved = new LongAdder();
+    private final LongAdder claims = new LongAdder();
+    private final LongAdder points = new LongAdder();
+    private final LongAdder freezes = new LongAdder();
+    private final LongAdder games = new LongAdder();
+
+    /**
+     * @return - the number of cards placed on the table.
+     */
+    public long cardsPlaced() {
+        return cardsPlaced.sum();
+    }
+
+    /**
+     * @return - the number of cards removed from the table.
+     */
+    public long cardsRemoved() {
+        return cardsRemoved.sum();
+    }
+
+    /**
+     * @return - the number of tokens placed by the players.
+     */
+    public long tokensPlaced() {
+        return tokensPlaced.sum();
+    }
+
+    /**
+     * @return - the number of tokens removed by the players (tokens removed by the dealer are not counted).
+     */
+    public long tokensRemoved() {
+        return tokensRemoved.sum();
+    }
+
+    /**
+     * @return - the number of claims checked by the dealer (legal or not).
+     */
+    public long claims() {
+        return claims.sum();
+    }
+
+    /**
+     * @return - the number of points scored (legal claims).
+     */
+    public long points() {
+        return points.sum();
+    }
+
+    /**
+     * @return - the number of freezes that ended (freezes of length 0 are not started, so they are not counted).
+     */
+    public long freezes() {
+        return freezes.sum();
+    }
+
+    /**
+     * @return - the number of games that ended.
+     */
+    public long games() {
+        return games.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "games " + games() + ", cards placed " + cardsPlaced() + ", cards removed " + cardsRemoved()
+                + ", tokens placed " + tokensPlaced() + ", tokens removed " + tokensRemoved()
+                + ", claims " + claims() + ", points " + points() + ", freezes " + freezes();
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        cardsPlaced.increment();
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        cardsRemoved.increment();
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        tokensPlaced.increment();
+    }
+
+    @Override
+    public void removeTokens() {
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        tokensRemoved.increment();
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        if (millies == 0) freezes.increment();
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        points.increment();
+    }
+
+    @Override
+    public void verdict(int player, boolean legal) {
+        claims.increment();
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        games.increment();
+    }
+
+    @Override
+    public void dispose() {
+    }
+}
@@ -0,0 +1,256 @@
+package bguspl.set;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A binary journal of the events of a game, for auditing and replaying games (see JournalReader). The journal is a
+ * user interface decorator, so all user interface events (including the verdicts of claims) are recorded on their way
+ * to the user interface, and the dealer records the events the user interface does not get (claims and reshuffles).
+ * <p>
+ * The journal is a sequence of fixed width records appended to a memory-mapped file:
+ * time (long, clock millis), type (int), player (int), slot (int), value (int), all big endian. The first record is a
+ * HEADER record (player = the number of players, slot = the table size, value = VERSION). Records are appended by the
+ * thread causing the event (player threads place and remove tokens), each into a position reserved atomically.
+ */
+public class Journal implements UserInterface, Closeable {
+
+    public static final int VERSION = 1;
+    public static final int RECORD_SIZE = 24;
+
+    /**
+     * The record types (0 marks a record that was never written).
+     */
+    public static final int HEADER = 1;
+    public static final int CARD_PLACED = 2; // slot, value = card
+    public static final int CARD_REMOVED = 3; // slot
+    public static final int TOKEN_PLACED = 4; // player, slot
+    public static final int TOKEN_REMOVED = 5; // player, slot
+    public static final int TOKENS_REMOVED = 6; // slot (-1 for all slots)
+    public static final int CLAIM = 7; // player, slot, value = card (one record for each token of the claim)
+    public static final int VERDICT = 8; // player, value = 1 iff the claim was a legal set
+    public static final int SCORE = 9; // player, value = score
+    public static final int FREEZE = 10; // player, value = millis
+    public static final int COUNTDOWN = 11; // slot = 1 iff warn, value = millis
+    public static final int ELAPSED = 12; // value = millis
+    public static final int RESHUFFLE = 13;
+    public static final int WINNER = 14; // player, slot = index among the winners, value = number of winners
+
+    /**
+     * The file is mapped in chunks of this size (a whole number of records, so no record crosses chunks).
+     */
+    static final int CHUNK_SIZE = RECORD_SIZE << 16;
+
+    private final FileChannel channel;
+    private final UserInterface ui;
+    private final Clock clock;
+
+    /**
+     * The position of the next record in the file.
+     */
+    private final AtomicLong position = new AtomicLong();
+
+    /**
+     * The mapped chunks of the file (replaced by a longer copy when a chunk is added).
+     */
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+    /**
+     * Guards mapping chunks and closing. Player threads may be virtual, and one mapping a chunk must not pin its carrier.
+     */
+    private final Lock mapLock = new ReentrantLock();
+
+    /**
+     * @param filename - the path of the journal file (overwritten if it exists).
+     * @param config   - the game configuration.
+     * @param clock    - the clock of the game, for the record times.
+     * @param ui       - the user interface to forward the displayed events to (may be null).
+     */
+    public Journal(String filename, Config config, Clock clock, UserInterface ui) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.clock = clock;
+        this.ui = ui;
+        append(HEADER, config.players, config.tableSize, VERSION);
+    }
+
+    /**
+     * Appends a record.
+     */
+    private void append(int type, int player, int slot, int value) {
+        long offset = position.getAndAdd(RECORD_SIZE);
+        MappedByteBuffer chunk = chunk((int) (offset / CHUNK_SIZE));
+        int index = (int) (offset % CHUNK_SIZE);
+        // absolute puts do not touch the buffer's position, so threads can fill their own records concurrently
+        chunk.putLong(index, clock.millis());
+        chunk.putInt(index + 12, player);
+        chunk.putInt(index + 16, slot);
+        chunk.putInt(index + 20, value);
+        chunk.putInt(index + 8, type); // written last, so a record with a type is complete
+    }
+
+    /**
+     * @param index - the index of the chunk.
+     * @return - the chunk, mapped on first use.
+     */
+    private MappedByteBuffer chunk(int index) {
+        MappedByteBuffer[] current = chunks;
+        if (index < current.length && current[index] != null) return current[index];
+        mapLock.lock();
+        try {
+            current = chunks;
+            if (index >= current.length)
+                current = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+            if (current[index] == null) {
+                try {
+                    current[index] = channel.map(FileChannel.MapMode.READ_WRITE, (long) index * CHUNK_SIZE, CHUNK_SIZE);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            chunks = current;
+            return current[index];
+        } finally {
+            mapLock.unlock();
+        }
+    }
+
+    /**
+     * Records a claim (the cards in the slots of the claiming player's tokens).
+     *
+     * @param player - the id of the claiming player.
+     * @param slots  - the claimed slots.
+     * @param cards  - the cards in the claimed slots (respectively).
+     */
+    public void claim(int player, int[] slots, int[] cards) {
+        for (int i = 0; i < slots.length; i++)
+            append(CLAIM, player, slots[i], cards[i]);
+    }
+
+    /**
+     * Records the verdict of the last claim of a player.
+     *
+     * @param player - the id of the claiming player.
+     * @param legal  - true iff the claim was a legal set.
+     */
+    @Override
+    public void verdict(int player, boolean legal) {
+        append(VERDICT, player, -1, legal ? 1 : 0);
+        if (ui != null) ui.verdict(player, legal);
+    }
+
+    /**
+     * Records that the dealer returned all cards to the deck.
+     */
+    public void reshuffle() {
+        append(RESHUFFLE, -1, -1, 0);
+    }
+
+    /**
+     * Writes the records to the file, cuts it at the last record and closes it. Must be called after the game threads
+     * are done.
+     * <p>
+     * The chunks are forced and dropped before the file is cut, but a mapping is only released when its buffer is
+     * collected, and some platforms (Windows) refuse to cut a file that is still mapped. The file is then left at its
+     * mapped length: the tail was never written, so it is all zeros, and JournalReader stops at the first record
+     * without a type.
+     */
+    @Override
+    public void close() throws IOException {
+        mapLock.lock();
+        try {
+            MappedByteBuffer[] mapped = chunks;
+            chunks = new MappedByteBuffer[0];
+            for (MappedByteBuffer chunk : mapped)
+                if (chunk != null) chunk.force();
+            try {
+                channel.truncate(position.get());
+            } catch (IOException e) {
+                // still mapped, see above
+            }
+            channel.close();
+        } finally {
+            mapLock.unlock();
+        }
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        append(CARD_PLACED, -1, slot, card);
+        if (ui != null) ui.placeCard(card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        append(CARD_REMOVED, -1, slot, 0);
+        if (ui != null) ui.removeCard(slot);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        append(TOKEN_PLACED, player, slot, 0);
+        if (ui != null) ui.placeToken(player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        append(TOKENS_REMOVED, -1, -1, 0);
+        if (ui != null) ui.removeTokens();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        append(TOKENS_REMOVED, -1, slot, 0);
+        if (ui != null) ui.removeTokens(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        append(TOKEN_REMOVED, player, slot, 0);
+        if (ui != null) ui.removeToken(player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        append(COUNTDOWN, -1, warn ? 1 : 0, (int) millies);
+        if (ui != null) ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        append(ELAPSED, -1, -1, (int) millies);
+        if (ui != null) ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        append(FREEZE, player, -1, (int) millies);
+        if (ui != null) ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        append(SCORE, player, -1, score);
+        if (ui != null) ui.setScore(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        for (int i = 0; i < players.length; i++)
+            append(WINNER, players[i], i, players.length);
+        if (ui != null) ui.announceWinner(players);
+    }
+
+    @Override
+    public void dispose() {
+        if (ui != null) ui.dispose();
+    }
+}
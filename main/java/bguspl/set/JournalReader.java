@@ -0,0 +1,174 @@
+package bguspl.set;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a game journal written by Journal, record by record, or replays it into a user interface.
+ */
+public final class JournalReader implements Closeable {
+
+    private final FileChannel channel;
+    private final long size;
+
+    /**
+     * The mapped chunk holding the current record, and its index.
+     */
+    private MappedByteBuffer chunk;
+    private long chunkIndex = -1;
+
+    /**
+     * The position of the next record in the file.
+     */
+    private long position;
+
+    /**
+     * The fields of the current record.
+     */
+    private long time;
+    private int type;
+    private int player;
+    private int slot;
+    private int value;
+
+    /**
+     * The number of players and the table size of the game (from the header).
+     */
+    private final int players;
+    private final int tableSize;
+
+    /**
+     * @param filename - the path of the journal file.
+     */
+    public JournalReader(String filename) throws IOException {
+        channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        size = channel.size();
+        if (!next() || type != Journal.HEADER)
+            throw new IOException("not a journal: " + filename);
+        if (value != Journal.VERSION)
+            throw new IOException("unsupported journal version " + value + ": " + filename);
+        players = player;
+        tableSize = slot;
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return - true iff there was a next record (false at the end of the journal).
+     */
+    public boolean next() throws IOException {
+        if (position + Journal.RECORD_SIZE > size) return false;
+        long index = position / Journal.CHUNK_SIZE;
+        if (index != chunkIndex) {
+            long offset = index * Journal.CHUNK_SIZE;
+            chunk = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(Journal.CHUNK_SIZE, size - offset));
+            chunkIndex = index;
+        }
+        int at = (int) (position % Journal.CHUNK_SIZE);
+        type = chunk.getInt(at + 8);
+        if (type == 0) return false; // the game ended before the record was written
+        time = chunk.getLong(at);
+        player = chunk.getInt(at + 12);
+        slot = chunk.getInt(at + 16);
+        value = chunk.getInt(at + 20);
+        position += Journal.RECORD_SIZE;
+        return true;
+    }
+
+    /**
+     * @return - the time of the current record (clock millis).
+     */
+    public long time() {
+        return time;
+    }
+
+    /**
+     * @return - the type of the current record (see the Journal constants).
+     */
+    public int type() {
+        return type;
+    }
+
+    /**
+     * @return - the player of the current record (-1 if none).
+     */
+    public int player() {
+        return player;
+    }
+
+    /**
+     * @return - the slot of the current record (-1 if none).
+     */
+    public int slot() {
+        return slot;
+    }
+
+    /**
+     * @return - the value of the current record.
+     */
+    public int value() {
+        return value;
+    }
+
+    /**
+     * @return - the number of players in the game.
+     */
+    public int players() {
+        return players;
+    }
+
+    /**
+     * @return - the number of slots on the table.
+     */
+    public int tableSize() {
+        return tableSize;
+    }
+
+    /**
+     * Replays the rest of the journal into a user interface.
+     *
+     * @param ui    - the user interface.
+     * @param speed - the replay speed relative to the original game (2 is twice as fast), or 0 for no delays.
+     */
+    public void replay(UserInterface ui, double speed) throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        long first = -1;
+        int[] winners = null;
+        while (next()) {
+            if (speed > 0) {
+                if (first == -1) first = time;
+                long delay = start + (long) ((time - first) / speed) - System.currentTimeMillis();
+                if (delay > 0) Thread.sleep(delay);
+            }
+            switch (type) {
+                case Journal.CARD_PLACED: ui.placeCard(value, slot); break;
+                case Journal.CARD_REMOVED: ui.removeCard(slot); break;
+                case Journal.TOKEN_PLACED: ui.placeToken(player, slot); break;
+                case Journal.TOKEN_REMOVED: ui.removeToken(player, slot); break;
+                case Journal.TOKENS_REMOVED:
+                    if (slot < 0) ui.removeTokens();
+                    else ui.removeTokens(slot);
+                    break;
+                case Journal.SCORE: ui.setScore(player, value); break;
+                case Journal.FREEZE: ui.setFreeze(player, value); break;
+                case Journal.COUNTDOWN: ui.setCountdown(value, slot == 1); break;
+                case Journal.ELAPSED: ui.setElapsed(value); break;
+                case Journal.WINNER:
+                    if (slot == 0) winners = new int[value];
+                    if (winners != null && slot < winners.length) winners[slot] = player;
+                    if (slot == value - 1 && winners != null) ui.announceWinner(winners);
+                    break;
+                default: // not displayed (claims, verdicts and reshuffles)
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
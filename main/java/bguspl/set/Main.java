@@ -1,6 +1,7 @@
 package bguspl.set;
 
 import bguspl.set.ex.Dealer;
+import bguspl.set.ex.FreezeScheduler;
 import bguspl.set.ex.Player;
 import bguspl.set.ex.Table;
 
@@ -47,51 +48,84 @@ public class Main {
 
         Player[] players = new Player[config.players];
         UserInterface ui = null;
-        try {
-            ui = new UserInterfaceSwing(logger, config, players);
-        } catch (UnsupportedOperationException | IllegalArgumentException e) {
-            logger.severe("error creating swing user interface: " + e.getMessage());
-            logger.severe("will try to run without user interface");
-            if (config.humanPlayers > 0)
-                logger.severe("warning: running with human players with no user interface");
+        HeadlessUserInterface headless = null;
+        if (config.headless) {
+            ui = headless = new HeadlessUserInterface();
+        } else {
+            try {
+                ui = new UserInterfaceSwing(logger, config, players);
+            } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                logger.severe("error creating swing user interface: " + e.getMessage());
+                logger.severe("will try to run without user interface");
+                if (config.humanPlayers > 0)
+                    logger.severe("warning: running with human players with no user interface");
+            }
+            ui = new UserInterfaceDecorator(logger, util, ui);
         }
-        ui = new UserInterfaceDecorator(logger, util, ui);
 
-        Env env = new Env(logger, config, ui, util);
+        Clock clock = Clock.create(config, config.randomSeed);
+        Journal journal = null;
+        if (!config.journalFile.isEmpty()) {
+            try {
+                journal = new Journal(config.journalFile, config, clock, ui);
+                ui = journal;
+            } catch (IOException e) {
+                logger.severe("error creating journal " + config.journalFile + ": " + e.getMessage());
+            }
+        }
 
-        // create the game entities
+        Env env = new Env(logger, config, ui, util, config.randomSeed, clock, journal);
+
+        // create the game entities (the freeze scheduler's thread is created by the game's clock too)
         Table table = new Table(env);
-        dealer = new Dealer(env, table, players);
+        FreezeScheduler freezes = new FreezeScheduler(clock, logger);
+        Thread freezeThread = env.newThread(freezes, "freezes");
+        freezeThread.start();
+        dealer = new Dealer(env, table, players, freezes);
         for (int i = 0; i < players.length; i++)
             players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
 
-        // start the dealer thread
-        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
-        dealerThread.startWithLog();
+        // start the dealer thread (created by the game's clock, which schedules it in simulated time)
+        Thread dealerThread = env.newThread(dealer, "dealer");
+        ThreadLogger.logStart(logger, dealerThread.getName());
+        dealerThread.start();
 
         try {
             // shutdown stuff
-            dealerThread.joinWithLog();
+            try {
+                dealerThread.join();
+            } finally {
+                ThreadLogger.logStop(logger, dealerThread.getName());
+                freezes.terminate();
+                clock.join(freezeThread);
+            }
             if (!xButtonPressed && config.endGamePauseMillies > 0) Thread.sleep(config.endGamePauseMillies);
         } catch (InterruptedException ignored) {
         } finally {
+            if (headless != null) logger.severe("headless game: " + headless);
             logger.severe("thanks for playing... it was fun!");
             System.out.println("Thanks for playing... it was fun!");
             ThreadLogger.logStop(logger, Thread.currentThread().getName());
             if (!xButtonPressed) env.ui.dispose();
+            if (journal != null) try {
+                journal.close();
+            } catch (IOException e) {
+                logger.severe("error closing journal " + config.journalFile + ": " + e.getMessage());
+            }
             for (Handler h : logger.getHandlers()) h.flush();
         }
     }
 
-    private static Logger initLogger() {
+    static Logger initLogger() {
 
         //just to make our log file nicer :)
         SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
-        FileHandler handler;
+        Handler handler;
         try {
             //noinspection ResultOfMethodCallIgnored
             new File("./logs/").mkdirs();
-            handler = new FileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
+            // game threads only queue the records, a background thread formats and writes them
+            handler = new AsyncFileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log", 1 << 14);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -109,7 +143,7 @@ public class Main {
         if (handlers != null) Arrays.stream(handlers).forEach(h -> h.setFormatter(new SimpleFormatter() {
             // default format (with timestamp)  = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
             @Override
-            public synchronized String format(LogRecord lr) {
+            public String format(LogRecord lr) { // called by the handler's writer thread only
                 return String.format(format, new Date(lr.getMillis()),
                         lr.getLevel().getLocalizedName(), lr.getMessage()
                 );
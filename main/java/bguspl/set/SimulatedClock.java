@@ -0,0 +1,286 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A clock for deterministic simulations of a game. The threads created by the clock take turns: exactly one of them
+ * runs at any time, until it parks (or sleeps, or joins another thread). The next thread to run is chosen among the
+ * runnable threads by a seeded random number generator, and when no thread is runnable the time jumps to the earliest
+ * deadline. Therefore, a game runs as fast as its threads can compute, and a game with the same seed (and no outside
+ * input) always makes the same moves in the same order.
+ *
+ * @inv at most one thread created by the clock runs game code at any time (the running task)
+ */
+public class SimulatedClock implements Clock {
+
+    /**
+     * A thread created by the clock.
+     */
+    private static class Task {
+
+        final Thread thread;
+
+        /**
+         * The order in which the task was started (breaks ties between equal deadlines).
+         */
+        final long seq;
+
+        /**
+         * Released when the task is chosen to run.
+         */
+        final Semaphore baton = new Semaphore(0);
+
+        /**
+         * The tasks waiting for this task to be done.
+         */
+        final List<Task> joiners = new ArrayList<>();
+
+        boolean permit;
+        boolean parked;
+        boolean done;
+        long deadline = -1;
+
+        Task(Thread thread, long seq) {
+            this.thread = thread;
+            this.seq = seq;
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when a task is done (for threads outside the simulation waiting in join).
+     */
+    private final Condition exited = lock.newCondition();
+
+    /**
+     * The tasks that were started and are not done yet.
+     */
+    private final Map<Thread, Task> tasks = new HashMap<>();
+
+    /**
+     * The tasks waiting for their turn to run, in the order they became runnable.
+     */
+    private final List<Task> runnable = new ArrayList<>();
+
+    /**
+     * The parked tasks that have a deadline, earliest first.
+     */
+    private final PriorityQueue<Task> sleeping = new PriorityQueue<>(
+            Comparator.comparingLong((Task task) -> task.deadline).thenComparingLong(task -> task.seq));
+
+    /**
+     * Chooses the next task to run.
+     */
+    private final Random random;
+
+    /**
+     * The task that runs now (null if all tasks are parked).
+     */
+    private Task running;
+
+    private long nextSeq;
+
+    /**
+     * The simulated time in milliseconds.
+     */
+    private volatile long now;
+
+    /**
+     * @param seed - the seed for choosing the order in which threads run.
+     */
+    public SimulatedClock(long seed) {
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public long millis() {
+        return now;
+    }
+
+    @Override
+    public Thread newThread(Runnable task, String name) {
+        return new Thread(name) {
+            @Override
+            public void start() {
+                register(this);
+                super.start();
+            }
+
+            @Override
+            public void run() {
+                enter(this);
+                try {
+                    task.run();
+                } finally {
+                    exit(this);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void park(long deadline) {
+        Task task;
+        lock.lock();
+        try {
+            task = tasks.get(Thread.currentThread());
+            if (task != null) {
+                if (task.permit) {
+                    task.permit = false;
+                    return;
+                }
+                if (deadline >= 0 && deadline <= now)
+                    return;
+                task.parked = true;
+                task.deadline = deadline;
+                if (deadline >= 0) sleeping.add(task);
+                running = null;
+                dispatch();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (task != null)
+            task.baton.acquireUninterruptibly();
+        else // a thread outside the simulation has no turn to wait for, so it only backs off (callers check in a loop)
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Override
+    public void unpark(Thread thread) {
+        if (thread == null) return;
+        lock.lock();
+        try {
+            Task task = tasks.get(thread);
+            if (task == null) {
+                LockSupport.unpark(thread);
+                return;
+            }
+            wake(task);
+            if (running == null) dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void join(Thread thread) throws InterruptedException {
+        lock.lock();
+        try {
+            Task target = tasks.get(thread);
+            Task task = tasks.get(Thread.currentThread());
+            if (task == null) {
+                while (target != null && !target.done)
+                    exited.await();
+                return;
+            }
+            if (target != null) target.joiners.add(task);
+        } finally {
+            lock.unlock();
+        }
+        while (isAlive(thread))
+            park(-1);
+    }
+
+    private boolean isAlive(Thread thread) {
+        lock.lock();
+        try {
+            return tasks.containsKey(thread);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called by a thread created by the clock when it is started.
+     */
+    private void register(Thread thread) {
+        lock.lock();
+        try {
+            Task task = new Task(thread, nextSeq++);
+            tasks.put(thread, task);
+            runnable.add(task);
+            if (running == null) dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called by a thread created by the clock before it runs its code: waits for the thread's first turn.
+     */
+    private void enter(Thread thread) {
+        Task task;
+        lock.lock();
+        try {
+            task = tasks.get(thread);
+        } finally {
+            lock.unlock();
+        }
+        task.baton.acquireUninterruptibly();
+    }
+
+    /**
+     * Called by a thread created by the clock after it ran its code: ends its turn for good.
+     */
+    private void exit(Thread thread) {
+        lock.lock();
+        try {
+            Task task = tasks.remove(thread);
+            task.done = true;
+            for (Task joiner : task.joiners)
+                wake(joiner);
+            exited.signalAll();
+            running = null;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes a parked task runnable, or gives a permit to a task that is not parked.
+     * Must be called while holding the lock.
+     */
+    private void wake(Task task) {
+        if (!task.parked) {
+            task.permit = true;
+            return;
+        }
+        task.parked = false;
+        if (task.deadline >= 0) sleeping.remove(task);
+        runnable.add(task);
+    }
+
+    /**
+     * Chooses the next task to run and passes the turn to it, advancing the time to the earliest deadline if no task
+     * is runnable. Does nothing if all tasks wait to be unparked. Must be called while holding the lock, with no
+     * running task.
+     */
+    private void dispatch() {
+        if (runnable.isEmpty()) {
+            Task next = sleeping.peek();
+            if (next == null) return;
+            now = next.deadline;
+            while (!sleeping.isEmpty() && sleeping.peek().deadline <= now) {
+                Task task = sleeping.poll();
+                task.parked = false;
+                runnable.add(task);
+            }
+        }
+        running = runnable.remove(random.nextInt(runnable.size()));
+        running.baton.release();
+    }
+}
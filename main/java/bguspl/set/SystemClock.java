@@ -0,0 +1,55 @@
+package bguspl.set;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A clock running in real time, with platform or virtual game threads (see config.virtualThreads).
+ */
+public class SystemClock implements Clock {
+
+    private final boolean virtualThreads;
+
+    /**
+     * @param virtualThreads - true iff the game threads should be virtual threads.
+     */
+    public SystemClock(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    @Override
+    public long millis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public Thread newThread(Runnable task, String name) {
+        return virtualThreads ? Thread.ofVirtual().name(name).unstarted(task) : new Thread(task, name);
+    }
+
+    @Override
+    public void park(long deadline) {
+        if (deadline < 0) {
+            LockSupport.park(this);
+            return;
+        }
+        long timeout = deadline - millis();
+        if (timeout > 0)
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(timeout));
+    }
+
+    @Override
+    public void unpark(Thread thread) {
+        if (thread != null) LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void join(Thread thread) throws InterruptedException {
+        thread.join();
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+}
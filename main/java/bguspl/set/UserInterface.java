@@ -72,6 +72,14 @@ public interface UserInterface {
      */
     void setScore(int player, int score);
 
+    /**
+     * Give the verdict of a player's claim (every claim the dealer checks gets one). Nothing is drawn for a verdict, so
+     * by default it is ignored.
+     * @param player - the player id.
+     * @param legal  - true iff the claim was a legal set (and the player scored a point).
+     */
+    default void verdict(int player, boolean legal) {
+    }
     /**
      * Hide player score panel from view and show text announcing the winner(s).
      * If players length == 1, declare him as a winner.
@@ -4,10 +4,14 @@ import bguspl.set.ex.Player;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.FileNotFoundException;
-import java.net.URL;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -22,6 +26,7 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
     private final GamePanel gamePanel;
     private final PlayersPanel playersPanel;
     private final WinnerPanel winnerPanel;
+    private final transient FrameDispatcher dispatcher;
     private final Config config;
 
     static String intInBaseToPaddedString(int n, int padding, int base) {
@@ -35,6 +40,7 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         gamePanel = new GamePanel();
         playersPanel = new PlayersPanel();
         winnerPanel = new WinnerPanel();
+        dispatcher = new FrameDispatcher();
 
         setLayout(new GridBagLayout());
         GridBagConstraints gbc = new GridBagConstraints();
@@ -66,7 +72,10 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         addKeyListener(new InputManager(logger, config, players));
         addWindowListener(new WindowManager());
 
-        EventQueue.invokeLater(() -> setVisible(true));
+        EventQueue.invokeLater(() -> {
+            setVisible(true);
+            dispatcher.start();
+        });
     }
 
     private class TimerPanel extends JPanel {
@@ -102,19 +111,10 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
     private class GamePanel extends JLayeredPane {
 
-        private final Image emptyCard;
-        private final Image[] deck;
+        private final CardAtlas atlas;
         private final Image[][] grid;
-        private final boolean[][][] playerTokens;
         private final JLabel[][] tokenText;
 
-        private Image loadImageResource(String filename) {
-            URL imageResource = getClass().getClassLoader().getResource(filename);
-            if (imageResource == null)
-                throw new RuntimeException(new FileNotFoundException(filename));
-            return new ImageIcon(imageResource).getImage();
-        }
-
         private GamePanel() {
 
             setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.cellHeight));
@@ -123,18 +123,14 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             assert config.featureSize < 10; // otherwise there will be naming conflicts
 
             // load the image resources
-            deck = new Image[config.deckSize];
-            for (int i = 0; i < config.deckSize; ++i)
-                deck[i] = loadImageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png");
-            emptyCard = loadImageResource("cards/empty_card.png");
+            atlas = new CardAtlas(config);
 
             grid = new Image[config.rows][config.columns];
             tokenText = new JLabel[config.rows][config.columns];
-            playerTokens = new boolean[config.players][config.rows][config.columns];
             for (int row = 0; row < config.rows; row++) {
                 for (int column = 0; column < config.columns; column++) {
                     // init the cards on the table grid as empty cards
-                    grid[row][column] = emptyCard;
+                    grid[row][column] = atlas.emptyCard();
 
                     // init the JLabel selection overlay
                     tokenText[row][column] = new JLabel("");
@@ -148,67 +144,151 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             }
         }
 
-        private void placeCard(int slot, int card) {
+        /**
+         * Changes the card image of a slot (card -1 for an empty card), the caller repaints.
+         */
+        private void setCard(int slot, int card) {
             int row = slot / config.columns;
             int column = slot % config.columns;
-            grid[row][column] = deck[card];
-            validate();
-            repaint();
+            grid[row][column] = atlas.card(card);
         }
 
-        private void removeCard(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            grid[row][column] = emptyCard;
-            validate();
-            repaint();
+        private void setTokenText(int slot, String text) {
+            tokenText[slot / config.columns][slot % config.columns].setText(text);
         }
 
-        private void placeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = true;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
+        @Override
+        public void paintComponent(Graphics g) {
+            // draw card images
+            for (int row = 0; row < config.rows; row++)
+                for (int column = 0; column < config.columns; column++)
+                    g.drawImage(grid[row][column], (column * config.cellWidth), (row * config.cellHeight), null);
         }
+    }
 
-        private void removeTokens() {
-            for (int i = 0; i < config.tableSize; i++)
-                removeTokens(i);
+    /**
+     * Collects the updates of the game threads and applies them to the Swing components on the event dispatch thread,
+     * once per frame (config.frameRate frames a second). The game threads only write the new state into atomic arrays
+     * and fields and never wait for the rendering, and all changes within a frame are painted together. Card placements
+     * and removals are queued instead, and shown one at a time, config.tableDelayMillis apart.
+     */
+    private class FrameDispatcher implements ActionListener {
+
+        private final Queue<int[]> cards; // {slot, card} pairs, card is -1 for removals
+        private long nextCardTime;
+
+        /**
+         * tokens[player * config.tableSize + slot] is 1 iff the player has a token on the slot, and dirtySlots[slot] is 1
+         * iff the token text of the slot needs to be regenerated. The token text of a slot is regenerated only when
+         * pendingCards[slot] (the number of queued card updates of the slot) is 0, so that tokens are never shown on a
+         * card that is not drawn yet.
+         */
+        private final AtomicIntegerArray tokens;
+        private final AtomicIntegerArray dirtySlots;
+        private final AtomicIntegerArray pendingCards;
+
+        /**
+         * The timer display: millis << 2, plus 1 if warn, plus 2 if showing the elapsed time (-1 before any update).
+         */
+        private volatile long timer = -1;
+        private long shownTimer = -1;
+
+        private final AtomicLongArray freezes;
+        private final AtomicIntegerArray scores;
+        private final long[] shownFreezes;
+        private final int[] shownScores;
+
+        private volatile int[] winners;
+        private boolean winnersShown;
+
+        private final Timer frameTimer;
+
+        private FrameDispatcher() {
+            cards = new ConcurrentLinkedQueue<>();
+            tokens = new AtomicIntegerArray(config.players * config.tableSize);
+            dirtySlots = new AtomicIntegerArray(config.tableSize);
+            pendingCards = new AtomicIntegerArray(config.tableSize);
+            freezes = new AtomicLongArray(config.players);
+            scores = new AtomicIntegerArray(config.players);
+            shownFreezes = new long[config.players];
+            shownScores = new int[config.players];
+            frameTimer = new Timer(Math.max(1, 1000 / Math.max(1, config.frameRate)), this);
         }
 
-        private void removeTokens(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            for (int player = 0; player < playerTokens.length; player++) {
-                playerTokens[player][row][column] = false;
-                tokenText[row][column].setText(generatePlayersTokenText(row, column));
-            }
+        private void start() {
+            frameTimer.start();
         }
 
-        private void removeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = false;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
+        private void stop() {
+            frameTimer.stop();
+        }
+
+        private void setCard(int slot, int card) {
+            pendingCards.incrementAndGet(slot); // before queueing, so the slot's tokens wait for the update
+            cards.add(new int[]{slot, card});
         }
 
-        private String generatePlayersTokenText(int row, int column) {
-            String text = "";
+        private void setToken(int player, int slot, boolean placed) {
+            tokens.set(player * config.tableSize + slot, placed ? 1 : 0);
+            dirtySlots.set(slot, 1);
+        }
+
+        private String generatePlayersTokenText(int slot) {
+            StringBuilder text = new StringBuilder();
             for (int player = 0; player < config.players; player++) {
-                if (playerTokens[player][row][column])
-                    text = text.concat(config.playerNames[player] + ", ");
+                if (tokens.get(player * config.tableSize + slot) == 1) {
+                    if (text.length() > 0) text.append(", ");
+                    text.append(config.playerNames[player]);
+                }
             }
-            if (text.length() < 2)
-                return "";
-            return text.substring(0, text.length() - 2);
+            return text.toString();
         }
 
         @Override
-        public void paintComponent(Graphics g) {
-            // draw card images
-            for (int row = 0; row < config.rows; row++)
-                for (int column = 0; column < config.columns; column++)
-                    g.drawImage(grid[row][column], (column * config.cellWidth), (row * config.cellHeight), this);
+        public void actionPerformed(ActionEvent e) {
+            boolean cardsChanged = false;
+            long now = System.currentTimeMillis();
+            while (now >= nextCardTime) {
+                int[] update = cards.poll();
+                if (update == null) break;
+                gamePanel.setCard(update[0], update[1]);
+                pendingCards.decrementAndGet(update[0]);
+                cardsChanged = true;
+                if (config.tableDelayMillis > 0) nextCardTime = now + config.tableDelayMillis;
+            }
+            if (cardsChanged) gamePanel.repaint();
+
+            for (int slot = 0; slot < config.tableSize; slot++)
+                if (dirtySlots.get(slot) == 1 && pendingCards.get(slot) == 0 && dirtySlots.getAndSet(slot, 0) == 1)
+                    gamePanel.setTokenText(slot, generatePlayersTokenText(slot));
+
+            long timer = this.timer;
+            if (timer != shownTimer) {
+                if ((timer & 2) != 0) timerPanel.setElapsed(timer >> 2);
+                else if (timer != -1) timerPanel.setCountdown(timer >> 2, (timer & 1) != 0);
+                shownTimer = timer;
+            }
+
+            for (int player = 0; player < config.players; player++) {
+                long freeze = freezes.get(player);
+                if (freeze != shownFreezes[player]) {
+                    playersPanel.setFreeze(player, freeze);
+                    shownFreezes[player] = freeze;
+                }
+                int score = scores.get(player);
+                if (score != shownScores[player]) {
+                    playersPanel.setScore(player, score);
+                    shownScores[player] = score;
+                }
+            }
+
+            int[] winners = this.winners;
+            if (winners != null && !winnersShown) {
+                playersPanel.setVisible(false);
+                winnerPanel.announceWinner(winners);
+                winnerPanel.setVisible(true);
+                winnersShown = true;
+            }
         }
     }
 
@@ -276,63 +356,65 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
     @Override
     public void placeCard(int card, int slot) {
-        gamePanel.placeCard(slot, card);
+        gamePanel.atlas.prefetch(card);
+        dispatcher.setCard(slot, card);
     }
 
     @Override
     public void removeCard(int slot) {
-        gamePanel.removeCard(slot);
+        dispatcher.setCard(slot, -1);
     }
 
     @Override
     public void placeToken(int player, int slot) {
-        gamePanel.placeToken(player, slot);
+        dispatcher.setToken(player, slot, true);
     }
 
     @Override
     public void removeTokens() {
-        gamePanel.removeTokens();
+        for (int slot = 0; slot < config.tableSize; slot++)
+            removeTokens(slot);
     }
 
     @Override
     public void removeTokens(int slot) {
-        gamePanel.removeTokens(slot);
+        for (int player = 0; player < config.players; player++)
+            dispatcher.setToken(player, slot, false);
     }
 
     @Override
     public void removeToken(int player, int slot) {
-        gamePanel.removeToken(player, slot);
+        dispatcher.setToken(player, slot, false);
     }
 
     @Override
     public void setCountdown(long millies, boolean warn) {
-        timerPanel.setCountdown(millies, warn);
+        dispatcher.timer = millies << 2 | (warn ? 1 : 0);
     }
 
     @Override
     public void setElapsed(long millies) {
-        timerPanel.setElapsed(millies);
+        dispatcher.timer = millies << 2 | 2;
     }
 
     @Override
     public void setFreeze(int player, long millies) {
-        playersPanel.setFreeze(player, millies);
+        dispatcher.freezes.set(player, millies);
     }
 
     @Override
     public void setScore(int player, int score) {
-        playersPanel.setScore(player, score);
+        dispatcher.scores.set(player, score);
     }
 
     @Override
     public void announceWinner(int[] players) {
-        playersPanel.setVisible(false);
-        winnerPanel.announceWinner(players);
-        winnerPanel.setVisible(true);
+        dispatcher.winners = players.clone();
     }
 
     @Override
     public void dispose() {
+        dispatcher.stop();
         super.dispose();
     }
 }
@@ -1,6 +1,7 @@
 package bguspl.set;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * An interface for general utilities provided for convenience.
@@ -15,6 +16,15 @@ public interface Util {
      */
     int[] cardToFeatures(int card);
 
+    /**
+     * Returns a single feature of a card (see cardToFeatures method) without allocating an array.
+     *
+     * @param card    - the card id.
+     * @param feature - the index of the feature (between 0 and config.featureCount - 1).
+     * @return - the value of the feature.
+     */
+    int cardFeature(int card, int feature);
+
     /**
      * Converts an array of card ids to an array of features (see cardToFeatures method).
      *
@@ -31,6 +41,14 @@ public interface Util {
      */
     boolean testSet(int[] cards);
 
+    /**
+     * Finds the card that completes the given cards to a legal set.
+     *
+     * @param cards - an array of config.featureSize - 1 distinct card ids.
+     * @return - the id of the card forming a legal set together with the given cards, or -1 if there is none.
+     */
+    int completeSet(int[] cards);
+
     /**
      * Finds and returns up to count sets in the given collection of cards.
      *
@@ -40,6 +58,49 @@ public interface Util {
      */
     List<int[]> findSets(List<Integer> deck, int count);
 
+    /**
+     * Finds and returns up to count sets in the given array of cards (see findSets method).
+     *
+     * @param deck  - an array of distinct card ids.
+     * @param count - the maximum number of sets to find.
+     * @return - a list of up to count integer arrays, each one contains the card ids of a legal set.
+     */
+    List<int[]> findSets(int[] deck, int count);
+
+    /**
+     * Counts the sets in the whole deck (config.deckSize cards). The count does not depend on the state of a game, so it
+     * is computed once and shared by all games using this object.
+     *
+     * @return - the number of legal sets in the deck.
+     */
+    int setsInDeck();
+    /**
+     * Finds all sets in the given array of cards, in parallel for large arrays.
+     *
+     * @param deck - an array of distinct card ids.
+     * @return - the card ids of all legal sets, one set after the other (config.featureSize ids per set).
+     */
+    default int[] findAllSets(int[] deck) {
+        List<int[]> sets = findSets(deck, Integer.MAX_VALUE);
+        int[] all = new int[sets.isEmpty() ? 0 : sets.size() * sets.get(0).length];
+        int i = 0;
+        for (int[] set : sets)
+            for (int card : set)
+                all[i++] = card;
+        return all;
+    }
+
+    /**
+     * Passes every set in the given array of cards to an action, without collecting the sets. For large arrays the
+     * search runs in parallel, and the action is called concurrently from several threads.
+     *
+     * @param deck   - an array of distinct card ids.
+     * @param action - called with the card ids of each legal set (the array may be reused once the action returns).
+     */
+    default void forEachSet(int[] deck, Consumer<int[]> action) {
+        findSets(deck, Integer.MAX_VALUE).forEach(action);
+    }
+
     /**
      * Spin a random number of times (for debugging/testing).
      */
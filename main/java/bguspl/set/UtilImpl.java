@@ -3,8 +3,10 @@ package bguspl.set;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.IntStream;
+import java.util.function.Consumer;
 
 /**
  * The implementation of the UserInterface interface.
@@ -13,15 +15,54 @@ public class UtilImpl implements Util {
 
     private final Config config;
 
+    /**
+     * The features of all cards in the deck, computed once: feature i of card c is at c * featureCount + i.
+     */
+    private final byte[] features;
+
+    /**
+     * The value of a single unit of each feature in a card id (i.e. featureSize ^ (featureCount - 1 - i)).
+     */
+    private final int[] weights;
+
+    /**
+     * The features of all cards as one-hot words (config.featureSize bits per feature), or null if
+     * config.packedFeatures is false.
+     */
+    private final long[] packed;
+
+    /**
+     * The number of sets in the whole deck (-1 until first counted).
+     */
+    private volatile int setsInDeck = -1;
+
     public UtilImpl(Config config) {
         this.config = config;
+
+        weights = new int[config.featureCount];
+        for (int i = config.featureCount - 1, weight = 1; i >= 0; --i, weight *= config.featureSize)
+            weights[i] = weight;
+
+        features = new byte[config.deckSize * config.featureCount];
+        for (int card = 0; card < config.deckSize; ++card)
+            for (int i = 0; i < config.featureCount; ++i)
+                features[card * config.featureCount + i] = (byte) (card / weights[i] % config.featureSize);
+
+        packed = config.packedFeatures ? new long[config.deckSize] : null;
+        if (packed != null)
+            for (int card = 0; card < config.deckSize; ++card)
+                for (int i = 0; i < config.featureCount; ++i)
+                    packed[card] |= 1L << (i * config.featureSize + features[card * config.featureCount + i]);
     }
 
     private void cardToFeatures(int card, int[] features) {
-        for (int i = config.featureCount - 1; i >= 0; --i) {
-            features[i] = card % config.featureSize;
-            card /= config.featureSize;
-        }
+        for (int i = 0; i < config.featureCount; ++i)
+            features[i] = this.features[card * config.featureCount + i];
+    }
+
+    @Override
+    public int cardFeature(int card, int feature) {
+        return features[card * config.featureCount + feature];
     }
 
     @Override
@@ -34,27 +75,33 @@ public class UtilImpl implements Util {
     @Override
     public int[][] cardsToFeatures(int[] cards) {
         int[][] features = new int[cards.length][config.featureCount];
-        IntStream.range(0, cards.length).forEach(i -> cardToFeatures(cards[i], features[i]));
+        for (int i = 0; i < cards.length; ++i)
+            cardToFeatures(cards[i], features[i]);
         return features;
     }
 
     @Override
     public boolean testSet(int[] cards) {
-        int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
+        if (packed != null && cards.length == 3) {
+            // per feature, the union equals the exclusive or iff the values are all the same or all different
+            long a = packed[cards[0]], b = packed[cards[1]], c = packed[cards[2]];
+            return ((a | b | c) ^ (a ^ b ^ c)) == 0;
+        }
+
         for (int i = 0; i < config.featureCount; ++i) {
             boolean sameSame = true, butDifferent = true;
 
             // check if this features is sameSame in all cards
-            for (int j = 1; j < features.length; ++j)
-                if (features[0][i] != features[j][i]) {
+            for (int j = 1; j < cards.length; ++j)
+                if (features[cards[0] * config.featureCount + i] != features[cards[j] * config.featureCount + i]) {
                     sameSame = false;
                     break;
                 }
 
             // check if this feature is butDifferent in all cards
-            for (int j = 1; j < features.length; ++j)
-                for (int k = j; k < features.length; ++k)
-                    if (features[j - 1][i] == features[k][i]) {
+            for (int j = 1; j < cards.length; ++j)
+                for (int k = j; k < cards.length; ++k)
+                    if (features[cards[j - 1] * config.featureCount + i] == features[cards[k] * config.featureCount + i]) {
                         butDifferent = false;
                         break;
                     }
@@ -64,18 +111,225 @@ public class UtilImpl implements Util {
         return true;
     }
 
+    @Override
+    public int completeSet(int[] cards) {
+        return cards.length == config.featureSize - 1 ? completeSet(cards, cards.length) : -1;
+    }
+
+    private int completeSet(int[] cards, int length) {
+        int card = 0;
+        for (int i = 0; i < config.featureCount; ++i) {
+            int seen = 0, sum = 0;
+            for (int j = 0; j < length; ++j) {
+                int feature = features[cards[j] * config.featureCount + i];
+                seen |= 1 << feature;
+                sum += feature;
+            }
+
+            // the missing feature is either the same as all others or the only one not used yet
+            int distinct = Integer.bitCount(seen);
+            if (distinct == 1) card += features[cards[0] * config.featureCount + i] * weights[i];
+            else if (distinct == length) card += (config.featureSize * (config.featureSize - 1) / 2 - sum) * weights[i];
+            else return -1;
+        }
+        return card;
+    }
+
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
+        return findSets(deck.stream().mapToInt(Integer::intValue).toArray(), count);
+    }
+
+    @Override
+    public List<int[]> findSets(int[] deck, int count) {
+        if (config.setFinder.equals("completion")) return findSetsByCompletion(deck, count);
+        return findSetsByCombinations(deck, count);
+    }
+
+    @Override
+    public int setsInDeck() {
+        int sets = setsInDeck;
+        if (sets == -1) { // callers racing here count the same number
+            int[] deck = new int[config.deckSize];
+            for (int card = 0; card < deck.length; ++card)
+                deck[card] = card;
+            sets = setsInDeck = findAllSets(deck).length / config.featureSize;
+        }
+        return sets;
+    }
+
+    @Override
+    public int[] findAllSets(int[] deck) {
+        if (!config.setFinder.equals("completion")) return Util.super.findAllSets(deck);
+        return search(deck, null);
+    }
+
+    @Override
+    public void forEachSet(int[] deck, Consumer<int[]> action) {
+        if (!config.setFinder.equals("completion")) Util.super.forEachSet(deck, action);
+        else search(deck, action);
+    }
+
+    /**
+     * Searches are split into parallel tasks when the number of card pairs to complete is at least this.
+     */
+    private static final long PARALLEL_PAIRS = 4096;
+
+    /**
+     * Finds all sets by completion (see findSetsByCompletion), in parallel for large decks.
+     *
+     * @param deck   - an array of distinct card ids.
+     * @param action - called with each set, or null to collect the sets.
+     * @return - the collected sets, one after the other (empty if action is not null).
+     */
+    private int[] search(int[] deck, Consumer<int[]> action) {
+        int[] cards = Arrays.copyOf(deck, deck.length);
+        Arrays.sort(cards);
+        long[] present = new long[(config.deckSize + 63) >>> 6];
+        for (int card : cards)
+            present[card >>> 6] |= 1L << card;
+        SetSearch search = new SetSearch(cards, present, action, 0, cards.length);
+        long pairs = (long) cards.length * (cards.length - 1) / 2;
+        return pairs < PARALLEL_PAIRS ? search.compute() : ForkJoinPool.commonPool().invoke(search);
+    }
+
+    /**
+     * Finds the sets whose lowest card is at an index in [from, to) of the sorted cards, by completing every
+     * combination of featureSize - 1 cards starting at the index. Ranges with many combinations are split in two
+     * subtasks, and each leaf collects its sets in its own primitive buffer (the buffers are joined up the tree).
+     */
+    @SuppressWarnings("serial") // a task of one search, never serialized
+    private final class SetSearch extends RecursiveTask<int[]> {
+
+        /**
+         * A range is searched by one task if it has fewer card pairs to complete than this.
+         */
+        private static final long LEAF_PAIRS = 1024;
+
+        private final int[] cards;
+        private final long[] present;
+        private final Consumer<int[]> action;
+        private final int from;
+        private final int to;
+
+        private int[] buffer;
+        private int size;
+
+        private SetSearch(int[] cards, long[] present, Consumer<int[]> action, int from, int to) {
+            this.cards = cards;
+            this.present = present;
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            long remaining = cards.length - from;
+            if (to - from > 1 && remaining * remaining / 2 >= LEAF_PAIRS && getPool() != null) {
+                int middle = (from + to) >>> 1;
+                SetSearch low = new SetSearch(cards, present, action, from, middle);
+                low.fork();
+                int[] high = new SetSearch(cards, present, action, middle, to).compute();
+                int[] sets = low.join();
+                if (high.length == 0) return sets;
+                int[] joined = Arrays.copyOf(sets, sets.length + high.length);
+                System.arraycopy(high, 0, joined, sets.length, high.length);
+                return joined;
+            }
+            buffer = new int[action == null ? 16 * config.featureSize : 0];
+            for (int first = from; first < to; ++first)
+                searchFrom(first);
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void searchFrom(int first) {
+            int n = cards.length;
+            int r = config.featureSize - 1;
+            if (first + r > n) return;
+            int[] combination = new int[r];
+            int[] chosen = new int[r + 1];
+            for (int i = 0; i < r; ++i)
+                combination[i] = first + i;
+
+            while (true) {
+                for (int i = 0; i < r; ++i)
+                    chosen[i] = cards[combination[i]];
+
+                // count each set once, as the combination of all its cards but the highest one
+                int card = completeSet(chosen, r);
+                if (card > chosen[r - 1] && (present[card >>> 6] & 1L << card) != 0) {
+                    chosen[r] = card;
+                    if (action != null) {
+                        action.accept(chosen);
+                    } else {
+                        if (size + chosen.length > buffer.length)
+                            buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, size + chosen.length));
+                        System.arraycopy(chosen, 0, buffer, size, chosen.length);
+                        size += chosen.length;
+                    }
+                }
+
+                // generate the next combination in lexicographic order, keeping the first card
+                int t = r - 1;
+                while (t != 0 && combination[t] == n - r + t) --t;
+                if (t == 0) return;
+                combination[t]++;
+                for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+            }
+        }
+    }
+
+    private List<int[]> findSetsByCompletion(int[] deck, int count) {
+        LinkedList<int[]> sets = new LinkedList<>();
+        int n = deck.length;
+        int r = config.featureSize - 1;
+        if (n <= r) return sets;
+
+        int[] cards = Arrays.copyOf(deck, n);
+        long[] present = new long[(config.deckSize + 63) >>> 6];
+        for (int card : cards)
+            present[card >>> 6] |= 1L << card;
+        Arrays.sort(cards);
+
+        int[] combination = new int[r];
+        int[] chosen = new int[r];
+        for (int i = 0; i < r; ++i)
+            combination[i] = i;
+
+        while (combination[r - 1] < n) {
+            for (int i = 0; i < r; ++i)
+                chosen[i] = cards[combination[i]];
+
+            // count each set once, as the combination of all its cards but the highest one
+            int card = completeSet(chosen, r);
+            if (card > chosen[r - 1] && (present[card >>> 6] & 1L << card) != 0) {
+                int[] set = Arrays.copyOf(chosen, r + 1);
+                set[r] = card;
+                sets.add(set);
+                if (sets.size() >= count) return sets;
+            }
+
+            // generate next combination in lexicographic order
+            int t = r - 1;
+            while (t != 0 && combination[t] == n - r + t) --t;
+            combination[t]++;
+            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+        }
+        return sets;
+    }
+
+    private List<int[]> findSetsByCombinations(int[] deck, int count) {
         LinkedList<int[]> sets = new LinkedList<>();
-        int n = deck.size();
+        int n = deck.length;
         int r = config.featureSize;
         int[] combination = new int[r];
 
         for (int i = 0; i < r; ++i)
             combination[i] = i;
 
-        while (combination[r - 1] < deck.size()) {
-            int[] cards = Arrays.stream(combination).map(deck::get).sorted().toArray();
+        while (combination[r - 1] < n) {
+            int[] cards = Arrays.stream(combination).map(i -> deck[i]).sorted().toArray();
             if (testSet(cards)) {
                 sets.add(cards);
                 if (sets.size() >= count) return sets;
@@ -0,0 +1,108 @@
+package bguspl.set.ex;
+
+import bguspl.set.Clock;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An immutable record of a set claimed by a player: the slots of the player's tokens and the cards that were in them
+ * at the moment of the claim, together with the dealer's verdict once it is given.
+ *
+ * @inv slots.length == cards.length
+ */
+public class Claim {
+
+    /**
+     * The verdicts the dealer gives a claim.
+     */
+    enum Verdict {
+        ACCEPTED, // a legal set: the player gets a point
+        REJECTED, // not a legal set: the player is penalized
+        DISMISSED // the claimed cards left their slots before the claim was checked: neither a point nor a penalty
+    }
+
+    /**
+     * The id of the claiming player.
+     */
+    public final int player;
+
+    /**
+     * The slots the player's tokens were placed on (must not be modified).
+     */
+    final int[] slots;
+
+    /**
+     * The cards in the claimed slots at the moment of the claim, -1 for empty slots (must not be modified).
+     */
+    final int[] cards;
+
+    /**
+     * Completed by the dealer with the verdict of the claim.
+     */
+    private final CompletableFuture<Verdict> verdict;
+
+    /**
+     * The clock of the game, through which the claiming thread waits for the verdict.
+     */
+    private final Clock clock;
+
+    /**
+     * The thread waiting for the verdict (null if none).
+     */
+    private volatile Thread waiter;
+
+    /**
+     * @param player - the id of the claiming player.
+     * @param slots  - the slots of the player's tokens.
+     * @param cards  - the cards in the slots (respectively).
+     * @param clock  - the clock of the game.
+     */
+    public Claim(int player, int[] slots, int[] cards, Clock clock) {
+        this.player = player;
+        this.slots = slots.clone();
+        this.cards = cards.clone();
+        this.verdict = new CompletableFuture<>();
+        this.clock = clock;
+    }
+
+    /**
+     * Gives a positive verdict (has no effect if a verdict was already given).
+     */
+    void accept() {
+        give(Verdict.ACCEPTED);
+    }
+
+    /**
+     * Gives a negative verdict (has no effect if a verdict was already given).
+     */
+    void reject() {
+        give(Verdict.REJECTED);
+    }
+
+    /**
+     * Dismisses the claim, because the player claimed cards that are no longer where they were claimed (has no effect
+     * if a verdict was already given).
+     */
+    void dismiss() {
+        give(Verdict.DISMISSED);
+    }
+
+    private void give(Verdict verdict) {
+        this.verdict.complete(verdict);
+        clock.unpark(waiter);
+    }
+
+    /**
+     * Waits until the dealer gives a verdict.
+     *
+     * @return - the verdict.
+     */
+    Verdict awaitVerdict() throws InterruptedException {
+        waiter = Thread.currentThread();
+        while (!verdict.isDone()) {
+            if (Thread.interrupted()) throw new InterruptedException();
+            clock.park(-1);
+        }
+        return verdict.join();
+    }
+}
@@ -0,0 +1,41 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Random;
+
+/**
+ * Decides the key presses of a computer player. The player's AI thread repeatedly takes a snapshot of the table, asks
+ * the strategy for keys, waits the strategy's reaction time and presses them, then waits until they are handled.
+ */
+public interface ComputerStrategy {
+
+    /**
+     * @param env - the game environment object.
+     * @return - the strategy selected by the configuration (see Config::computerStrategy).
+     */
+    static ComputerStrategy create(Env env) {
+        switch (env.config.computerStrategy) {
+            case "easy": return new SolverStrategy(env, 4000, 0.25);
+            case "medium": return new SolverStrategy(env, 2000, 0.1);
+            case "hard": return new SolverStrategy(env, 500, 0);
+            default: return new RandomStrategy(env);
+        }
+    }
+
+    /**
+     * Chooses the next keys to press.
+     *
+     * @param cards  - the card in each slot (-1 for an empty slot).
+     * @param tokens - the slots of the player's tokens (bit s for slot s).
+     * @param random - the player's source of randomness.
+     * @return - the slots to press, in order (pressing a slot with a token removes it), or an empty array to wait for
+     *           the table to change.
+     */
+    int[] chooseKeys(int[] cards, long tokens, Random random);
+
+    /**
+     * @return - the time in milliseconds between seeing the table and pressing the chosen keys.
+     */
+    long reactionMillis();
+}
@@ -4,12 +4,12 @@ import bguspl.set.Config;
 import bguspl.set.Env;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
+import java.util.Random;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  * This class manages the dealer's threads and data
@@ -28,9 +28,14 @@ public class Dealer implements Runnable {
 	private final Player[] players;
 	public long timer;
 	/**
-	 * The list of card ids that are left in the dealer's deck.
+	 * The card ids that are left in the dealer's deck.
 	 */
-	private final List<Integer> deck;
+	final IntDeque deck;
+
+	/**
+	 * The source of randomness for all of the dealer's shuffles.
+	 */
+	private final Random random;
 	private TimerMode mode;
 
 	/**
@@ -44,15 +49,57 @@ public class Dealer implements Runnable {
 
 	private volatile boolean terminate;
 	protected Queue<Integer> toRemove; // stores all the slots that have cards that need to be removed
-	protected Queue<Player> playerQ; // all players that have 3 tokens active
+
+	/**
+	 * The claims waiting for the dealer thread (added by players, removed by the
+	 * dealer).
+	 */
+	private final Queue<Claim> claims;
+
+	/**
+	 * The dealer thread, unparked when a claim arrives or the game is
+	 * terminated.
+	 */
+	private volatile Thread dealerThread;
+
+	/**
+	 * Times the freezes of the players, and its thread if the dealer owns the scheduler (null if it is shared).
+	 */
+	private final FreezeScheduler freezes;
+	private final boolean ownsFreezes;
+	private volatile Thread freezeThread;
+
+	/**
+	 * The interval between timer display updates while the countdown warning is
+	 * shown (the warning displays hundredths of a second).
+	 */
+	private static final long WARNING_DISPLAY_MILLIS = 10;
 	public boolean keyLock = false;
 
 	/**
 	 * The time when the dealer needs to reshuffle the deck due to turn timeout.
 	 */
-	private long reshuffleTime = System.currentTimeMillis();
+	private long reshuffleTime;
 
+	/**
+	 * Creates a dealer with its own freeze scheduler, which it starts and terminates.
+	 *
+	 * @param env     - the game environment object.
+	 * @param table   - the table of the game.
+	 * @param players - the players of the game.
+	 */
 	public Dealer(Env env, Table table, Player[] players) {
+		this(env, table, players, null);
+	}
+
+	/**
+	 * @param env     - the game environment object.
+	 * @param table   - the table of the game.
+	 * @param players - the players of the game.
+	 * @param freezes - a freeze scheduler shared with other games (started and terminated by the caller, on the clock
+	 *                of the game), or null for the dealer to own one.
+	 */
+	public Dealer(Env env, Table table, Player[] players, FreezeScheduler freezes) {
 		if (env.config.turnTimeoutMillis == 0)
 			mode = TimerMode.lastAction;
 		else if (env.config.turnTimeoutMillis < 0)
@@ -60,14 +107,20 @@ public class Dealer implements Runnable {
 		else {
 			mode = TimerMode.Shuffle;
 		}
-		this.playerQ = new ConcurrentLinkedQueue<>();
+		this.claims = new ConcurrentLinkedQueue<>();
 		this.toRemove = new ConcurrentLinkedQueue<>();
 		this.terminate = false;
 		this.env = env;
 		this.table = table;
 		this.players = players;
-		deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
+		deck = new IntDeque(env.config.deckSize);
+		for (int card = 0; card < env.config.deckSize; card++)
+			deck.addLast(card);
+		random = new Random(env.randomSeed);
+		ownsFreezes = freezes == null;
+		this.freezes = ownsFreezes ? new FreezeScheduler(env.clock, env.logger) : freezes;
 		timer = env.config.turnTimeoutMillis;
+		reshuffleTime = env.clock.millis();
 	}
 
 	/**
@@ -75,11 +128,16 @@ public class Dealer implements Runnable {
 	 */
 	@Override
 	public void run() {
-		Collections.shuffle(deck); // shuffle deck upon start
+		dealerThread = Thread.currentThread();
+		deck.shuffle(random); // shuffle deck upon start
 		env.logger.info("Thread " + Thread.currentThread().getName() + " starting.");
+		if (ownsFreezes) {
+			freezeThread = env.newThread(freezes, "freezes");
+			freezeThread.start();
+		}
 		int i = 0;
 		for (Player p : players) {
-			new Thread(p, "player " + i).start();
+			env.newThread(p, "player " + i).start();
 			i++;
 		}
 		while (!shouldFinish()) {
@@ -98,12 +156,12 @@ public class Dealer implements Runnable {
 	 * not time out.
 	 */
 	private void timerLoop() {
-		while (!terminate && ((mode == TimerMode.Shuffle && System.currentTimeMillis() < reshuffleTime)
-				|| (mode != TimerMode.Shuffle))) {
-			sleepUntilWokenOrTimeout();
+		while (!terminate && (mode != TimerMode.Shuffle || env.clock.millis() < reshuffleTime)) {
+			if (sleepUntilWokenOrTimeout()) { // the table only changes when a claim was handled
+				removeCardsFromTable();
+				placeCardsOnTable();
+			}
 			updateTimerDisplay(false);
-			removeCardsFromTable();
-			placeCardsOnTable();
 		}
 	}
 
@@ -115,24 +173,51 @@ public class Dealer implements Runnable {
 			Thread temp = players[j].playerThread;
 			players[j].terminate();
 			try {
-				synchronized (players[j]) {
-					players[j].notifyAll();
-				}
-				temp.join();
+				if (temp != null) // null if the game is terminated before the player started
+					env.clock.join(temp);
 			} catch (InterruptedException e) {
 				e.printStackTrace();
 			}
 		}
+		if (ownsFreezes) {
+			Thread freezeThread = this.freezeThread;
+			freezes.terminate();
+			try {
+				if (freezeThread != null)
+					env.clock.join(freezeThread);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		} else {
+			freezes.cancel(env);
+		}
 		this.terminate = true;
+		env.clock.unpark(dealerThread);
+	}
+
+	/**
+	 * Freezes a player (called by the player, whose thread keeps running while frozen).
+	 *
+	 * @param player - the player to freeze.
+	 * @param millis - the length of the freeze in milliseconds.
+	 */
+	public void freeze(Player player, long millis) {
+		freezes.freeze(env, player, millis);
+	}
+
+	/**
+	 * Called by a player that placed all of its tokens, to have its set checked.
+	 * The verdict is given through the claim.
+	 *
+	 * @param claim - the claimed set.
+	 */
+	public void claim(Claim claim) {
+		claims.add(claim);
+		env.clock.unpark(dealerThread);
 	}
 
 	private int numberOfCards() {
-		int sum = 0;
-		for (int i = 0; i < table.slotToCard.length; i++) {
-			if (table.slotToCard[i] != null)
-				sum++;
-		}
-		return sum;
+		return table.countCards();
 	}
 
 	/**
@@ -141,144 +226,236 @@ public class Dealer implements Runnable {
 	 * @return true iff the game should be finished.
 	 */
 	private boolean shouldFinish() {
-		return terminate || (env.util.findSets(deck, 1).size() == 0);
+		return terminate || table.setsInPlay() == 0;
 	}
 
 	/**
 	 * Checks cards should be removed from the table and removes them.
 	 */
 	private void removeCardsFromTable() {
-		synchronized (table) {
-			List<Integer> trSlots = new ArrayList<>();
-			while (!toRemove.isEmpty())
-				trSlots.add(toRemove.remove());
-			Collections.shuffle(trSlots);
-			while (!trSlots.isEmpty())
-				table.removeCard(trSlots.remove(0));
+		List<Integer> trSlots = new ArrayList<>(toRemove);
+		Collections.shuffle(trSlots, random);
+		while (!trSlots.isEmpty())
+			clearSlot(trSlots.remove(0), true);
+		toRemove.clear();
+	}
+
+	/**
+	 * Removes the tokens of all players and the card from a slot, while holding
+	 * the slot's lock.
+	 *
+	 * @param slot    - the slot to clear.
+	 * @param discard - true iff the card leaves the game (otherwise it is returned
+	 *                to the deck by the caller).
+	 */
+	private void clearSlot(int slot, boolean discard) {
+		table.slotLock(slot).lock();
+		try {
+			table.removeTokens(slot);
+			if (discard)
+				table.discardCard(slot);
+			else
+				table.removeCard(slot);
+		} finally {
+			table.slotLock(slot).unlock();
 		}
 	}
 
 	/**
 	 * Check if any cards can be removed from the deck and placed on the table.
 	 */
-	public void placeCardsOnTable() { // needs review
-		List<Integer> l = new ArrayList<>();// need to take all the cards that left and check if there is one set, if
-											// not terminate.
-		for (int i = 0; i < table.slotToCard.length; i++) {
-			if (table.slotToCard[i] != null)
-				l.add(table.slotToCard[i]);
-		}
-		for (int i = 0; i < deck.size(); i++) {
-			l.add(deck.get(i));
-		}
-		// List<int[]> sets = env.util.findSets(l, 1);
-		if (env.util.findSets(l, 1).size() < 1) {
+	public void placeCardsOnTable() {
+		if (table.setsInPlay() < 1) { // no set left in the table and the deck together
 			terminate();
 			return;
 		}
 		List<Integer> slots = new ArrayList<>();
 		boolean flag = false; // signals whether timer requires reset after placing cards
-		synchronized (table) {
-			for (int i = 0; i < table.slotToCard.length; i++) {
-				if (table.slotToCard[i] == null && !deck.isEmpty()) {
-					slots.add(i);
-					flag = true;
-				}
+		for (int i = 0; i < env.config.tableSize; i++) {
+			if (table.cardAt(i) == -1 && !deck.isEmpty()) {
+				slots.add(i);
+				flag = true;
 			}
-			Collections.shuffle(slots);
-			while (!slots.isEmpty())
-				table.placeCard(deck.remove(0), slots.remove(0));
-			if (mode == TimerMode.Shuffle && flag)
-				reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis + 500;
-			if (mode != TimerMode.Shuffle) {
-				List cards = new ArrayList<>();
-				for (Integer i : table.slotToCard) {
-					if (i != null)
-						cards.add(i);
-				}
-				if (env.util.findSets(cards, 1).size() < 1) {
-					removeAllCardsFromTable();
-					placeCardsWithSet();
-				}
-				if(flag)
-					this.reshuffleTime = System.currentTimeMillis();
+		}
+		Collections.shuffle(slots, random);
+		while (!slots.isEmpty() && !deck.isEmpty()) // the deck may run out before all empty slots are filled
+			table.placeCard(deck.removeFirst(), slots.remove(0));
+		if (flag && env.config.hints)
+			table.hints();
+		if (mode == TimerMode.Shuffle && flag)
+			reshuffleTime = env.clock.millis() + env.config.turnTimeoutMillis + 500;
+		if (mode != TimerMode.Shuffle) {
+			if (table.setsOnTable() < 1) {
+				removeAllCardsFromTable();
+				placeCardsWithSet();
 			}
+			if(flag)
+				this.reshuffleTime = env.clock.millis();
 		}
 	}
 
-	public void placeCardsWithSet() { // assumes table is empty
-		synchronized (table) {
-			int amountOfCards = Math.min(env.config.rows * env.config.columns, deck.size());
-			List<Integer> cardList = new ArrayList<>();
-			for (int i = 0; i < amountOfCards; i++)
-				cardList.add(deck.remove(0));
-			if (env.util.findSets(cardList, 1).size() == 0) {
-				placeCardsWithSet();
-			} else {
-				List<Integer> slots = new ArrayList<>();
-				for(int i=0; i< amountOfCards; i++)
-					slots.add(i);
-				Collections.shuffle(slots);
-				while(!slots.isEmpty())
-					table.placeCard(cardList.remove(0), slots.remove(0));
-			}
+	/**
+	 * The largest numbers of cards without a set for a feature size of 3, by feature count n: the maximal sizes of cap
+	 * sets in the affine space AG(n, 3), so any more cards always contain a set. They are known up to n = 6: 20 for
+	 * n = 4 (Pellegrino, 1970), 45 for n = 5 (Edel, Ferret, Landjev and Storme, 2002) and 112 for n = 6 (Potechin, 2008).
+	 */
+	private static final int[] CAP_SET_SIZES = {1, 2, 4, 9, 20, 45, 112};
+
+	/**
+	 * Deals a full table (or the whole deck, if smaller) that contains at least one set, in one pass: a random set is
+	 * picked first (by completing random cards with Util::completeSet, or with the set finder if that keeps failing),
+	 * the rest of the table is taken from the top of the shuffled deck, and the cards are placed in random slots.
+	 * Assumes the table is empty and the deck has a set.
+	 */
+	public void placeCardsWithSet() {
+		int amountOfCards = Math.min(env.config.tableSize, deck.size());
+		int[] cards = deck.toArray();
+		int[] set = capSetSize() < amountOfCards ? new int[0] : randomSet(cards); // more cards than a cap set hold a set
+		boolean[] inSet = new boolean[env.config.deckSize];
+		for (int card : set)
+			inSet[card] = true;
+
+		int[] cardList = new int[amountOfCards];
+		System.arraycopy(set, 0, cardList, 0, set.length);
+		int dealt = set.length;
+		deck.clear();
+		for (int card : cards) {
+			if (inSet[card]) continue;
+			if (dealt < amountOfCards) cardList[dealt++] = card;
+			else deck.addLast(card); // the rest stays in the deck, in the same order
 		}
+
+		List<Integer> slots = new ArrayList<>();
+		for(int i=0; i< amountOfCards; i++)
+			slots.add(i);
+		Collections.shuffle(slots, random);
+		for (int card : cardList)
+			table.placeCard(card, slots.remove(0));
 	}
 
 	/**
-	 * Sleep for a fixed amount of time or until the thread is awakened for some
-	 * purpose.
+	 * @return - the largest number of cards without a set, or Integer.MAX_VALUE if it is not known for the deck.
 	 */
-	private void sleepUntilWokenOrTimeout() {
-		try {
-			synchronized (playerQ) {
-				playerQ.wait(10);
-				if (!playerQ.isEmpty()) {
-					synchronized (table) {
-						while (!playerQ.isEmpty()) {
-							Player p = playerQ.remove();
-							int[] slots = { p.tokens.get(0), p.tokens.get(1), p.tokens.get(2) };
-							int[] cards = { table.slotToCard[slots[0]], table.slotToCard[slots[1]],
-									table.slotToCard[slots[2]] };
-							if (env.util.testSet(cards)) { // if they form a set
-								for (int i : cards) {
-									this.toRemove.add(table.cardToSlot[i]);
-								}
-								p.toAward = true;
-								p.point();
-								for (Player p1 : players) {
-									for (int j = p1.tokens.size() - 1; j >= 0; j--) {
-										Integer i = p1.tokens.get(j);
-										if (i.intValue() == slots[0]) {
-											p1.tokens.remove(i);
-											table.removeToken(p1.id, i);
-										} else if (i.intValue() == slots[1]) {
-											p1.tokens.remove(i);
-											table.removeToken(p1.id, i);
-										} else if (i.intValue() == slots[2]) {
-											p1.tokens.remove(i);
-											table.removeToken(p1.id, i);
-										}
-									}
-								}
-								if (mode == TimerMode.lastAction) {
-									this.reshuffleTime = System.currentTimeMillis();
-								}
-							} else {
-								p.toAward = false;
-							}
-							try {
-								synchronized (p) {
-									p.notifyAll();
-								}
-							} catch (Exception ignored) {
-							}
-						}
-					}
-				}
+	private int capSetSize() {
+		if (env.config.featureSize != 3 || env.config.featureCount >= CAP_SET_SIZES.length)
+			return Integer.MAX_VALUE;
+		return CAP_SET_SIZES[env.config.featureCount];
+	}
+
+	/**
+	 * Picks a random set among the given cards.
+	 *
+	 * @param cards - the cards, which contain at least one set.
+	 * @return - the cards of the set.
+	 */
+	private int[] randomSet(int[] cards) {
+		boolean[] present = new boolean[env.config.deckSize];
+		for (int card : cards)
+			present[card] = true;
+		int[] chosen = new int[env.config.featureSize - 1];
+		for (int attempt = 0; attempt < 4 * cards.length; ++attempt) {
+			boolean distinct = true;
+			for (int i = 0; i < chosen.length; ++i) {
+				chosen[i] = cards[random.nextInt(cards.length)];
+				for (int j = 0; j < i; ++j)
+					distinct &= chosen[j] != chosen[i];
 			}
-		} catch (Exception e) {
+			if (!distinct) continue;
+			int completion = env.util.completeSet(chosen);
+			if (completion == -1 || !present[completion]) continue;
+			boolean fresh = true;
+			for (int card : chosen)
+				fresh &= card != completion;
+			if (!fresh) continue;
+			int[] set = Arrays.copyOf(chosen, chosen.length + 1);
+			set[chosen.length] = completion;
+			return set;
+		}
+		List<int[]> sets = env.util.findSets(cards, Integer.MAX_VALUE); // few sets left in the deck
+		return sets.get(random.nextInt(sets.size()));
+	}
+
+	/**
+	 * Wait until a claim arrives or the timer display needs to be updated, and
+	 * check the claims of all players that arrived in the meantime.
+	 *
+	 * @return true iff at least one claim was checked.
+	 */
+	private boolean sleepUntilWokenOrTimeout() {
+		if (claims.isEmpty() && !terminate) {
+			long timeout = millisUntilTimerUpdate();
+			if (timeout < 0)
+				env.clock.park(-1);
+			else if (timeout > 0)
+				env.clock.park(env.clock.millis() + timeout);
+		}
+		boolean checked = false;
+		for (Claim claim = claims.poll(); claim != null; claim = claims.poll()) {
+			checkClaim(claim);
+			checked = true;
+		}
+		return checked;
+	}
+
+	/**
+	 * Check a claimed set, award or penalize the player and give the verdict.
+	 * Only the dealer thread changes cards, so the claim is checked without
+	 * locking the table. The cards of a legal set are removed (together with all
+	 * tokens on them) by removeCardsFromTable.
+	 *
+	 * @param claim - the claim of a player that placed all of its tokens.
+	 */
+	private void checkClaim(Claim claim) {
+		if (env.journal != null)
+			env.journal.claim(claim.player, claim.slots, claim.cards);
+		boolean current = true;
+		for (int i = 0; i < claim.slots.length; i++) { // the cards must still be where they were claimed
+			current &= claim.cards[i] != -1 && table.cardAt(claim.slots[i]) == claim.cards[i];
+			current &= !toRemove.contains(claim.slots[i]); // and not already collected by an earlier claim of the batch
+		}
+		if (!current) { // the player saw a table that changed since: neither a point nor a penalty
+			env.ui.verdict(claim.player, false);
+			claim.dismiss();
+			return;
+		}
+		if (!env.util.testSet(claim.cards)) {
+			env.ui.verdict(claim.player, false);
+			claim.reject();
+			return;
 		}
+
+		for (int slot : claim.slots)
+			this.toRemove.add(slot);
+		players[claim.player].point();
+		if (mode == TimerMode.lastAction) {
+			this.reshuffleTime = env.clock.millis();
+		}
+		env.ui.verdict(claim.player, true);
+		claim.accept();
+	}
+
+	/**
+	 * Compute how long the dealer may wait before the timer display changes or
+	 * the countdown runs out.
+	 *
+	 * @return the number of milliseconds to wait, or -1 if there is no timer to
+	 *         update.
+	 */
+	private long millisUntilTimerUpdate() {
+		long now = env.clock.millis();
+		if (mode == TimerMode.Shuffle) {
+			long remaining = reshuffleTime - now;
+			if (remaining <= 0)
+				return 0;
+			if (remaining <= env.config.turnTimeoutWarningMillis)
+				return Math.min(remaining, WARNING_DISPLAY_MILLIS);
+			long untilWarning = remaining - env.config.turnTimeoutWarningMillis;
+			long untilNextSecond = remaining % 1000 == 0 ? 1000 : remaining % 1000;
+			return Math.min(untilWarning, untilNextSecond);
+		} else if (mode == TimerMode.lastAction) {
+			return 1000 - (now - reshuffleTime) % 1000;
+		}
+		return -1;
 	}
 
 	public boolean timerCanBeChange(long time) {
@@ -300,15 +477,15 @@ public class Dealer implements Runnable {
 	 */
 	public void updateTimerDisplay(boolean reset) {
 		if (mode == TimerMode.Shuffle) {
-			if (this.reshuffleTime - System.currentTimeMillis() > env.config.turnTimeoutWarningMillis)
-				this.env.ui.setCountdown(this.reshuffleTime - System.currentTimeMillis(), reset);
-			else if (this.reshuffleTime - System.currentTimeMillis() > 0) {
-				this.env.ui.setCountdown(this.reshuffleTime - System.currentTimeMillis(), true);
+			if (this.reshuffleTime - env.clock.millis() > env.config.turnTimeoutWarningMillis)
+				this.env.ui.setCountdown(this.reshuffleTime - env.clock.millis(), reset);
+			else if (this.reshuffleTime - env.clock.millis() > 0) {
+				this.env.ui.setCountdown(this.reshuffleTime - env.clock.millis(), true);
 			} else {
 				this.env.ui.setCountdown(0, true);
 			}
 		} else if (mode == TimerMode.lastAction) {
-			this.env.ui.setElapsed(System.currentTimeMillis() - this.reshuffleTime);
+			this.env.ui.setElapsed(env.clock.millis() - this.reshuffleTime);
 		}
 	}
 
@@ -316,29 +493,24 @@ public class Dealer implements Runnable {
 	 * Returns all the cards from the table to the deck.
 	 */
 	private void removeAllCardsFromTable() {
-		synchronized (table) {
-			for (Player p : players) {
-				p.keyPress.clear();
-				for (int j = p.tokens.size() - 1; j >= 0; j--) {
-					table.removeToken(p.id, p.tokens.get(j));
-					p.tokens.remove(j);
-				}
-			}
-			List<Integer> trSlots = new ArrayList<>();
+		if (env.journal != null)
+			env.journal.reshuffle();
+		for (Player p : players)
+			p.keyPress.clear();
+		List<Integer> trSlots = new ArrayList<>();
 
-			for (int i = 0; i < table.slotToCard.length; i++) {
-				if (this.table.slotToCard[i] != null) {
-					this.deck.add(this.table.slotToCard[i]);
-					trSlots.add(i);
-				}
+		for (int i = 0; i < env.config.tableSize; i++) {
+			if (this.table.cardAt(i) != -1) {
+				this.deck.addLast(this.table.cardAt(i));
+				trSlots.add(i);
 			}
-			Collections.shuffle(trSlots);
-			if (mode == TimerMode.lastAction)
-				this.reshuffleTime = System.currentTimeMillis();
-			while (!trSlots.isEmpty())
-				table.removeCard(trSlots.remove(0));
-			Collections.shuffle(deck);
 		}
+		Collections.shuffle(trSlots, random);
+		if (mode == TimerMode.lastAction)
+			this.reshuffleTime = env.clock.millis();
+		while (!trSlots.isEmpty())
+			clearSlot(trSlots.remove(0), false);
+		deck.shuffle(random);
 	}
 
 	/**
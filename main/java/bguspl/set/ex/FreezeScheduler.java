@@ -0,0 +1,150 @@
+package bguspl.set.ex;
+
+import bguspl.set.Clock;
+import bguspl.set.Env;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Times the freezes of the players of any number of games from one thread. A frozen player's thread does not sleep:
+ * the scheduler keeps the freeze deadlines in a queue ordered by time, updates the freeze countdown of each frozen
+ * player on the user interface of its game at every whole number of seconds before its deadline (so a freeze of 2.5
+ * seconds shows 2.5, 2, 1 and 0 seconds, and the ticks do not drift), and unfreezes each player at its deadline.
+ * <p>
+ * The scheduler waits on one clock, so it can only be shared by games of the same clock (games in real time, or a
+ * single game in simulated time, whose clock must create the scheduler's thread). The entries of a game are keyed by
+ * its Env, so a game that ends can cancel them without stopping the scheduler.
+ */
+public class FreezeScheduler implements Runnable {
+
+    /**
+     * A scheduled update of a player's freeze.
+     */
+    private static final class Tick implements Comparable<Tick> {
+
+        private final long time;
+        private final long seq;
+        private final Env game;
+        private final Player player;
+        private final long deadline;
+
+        private Tick(long time, long seq, Env game, Player player, long deadline) {
+            this.time = time;
+            this.seq = seq;
+            this.game = game;
+            this.player = player;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int compareTo(Tick other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(seq, other.seq);
+        }
+    }
+
+    private final Clock clock;
+    private final Logger logger;
+
+    /**
+     * The pending ticks, and the number of ticks added (which orders ticks of the same time), guarded by lock.
+     */
+    private final PriorityQueue<Tick> ticks = new PriorityQueue<>();
+    private long added;
+    private final Lock lock = new ReentrantLock(); // not a monitor, so a virtual thread waiting for it is not pinned
+
+    private volatile Thread schedulerThread;
+    private volatile boolean terminate;
+
+    /**
+     * @param clock  - the clock of the games, which creates the scheduler's thread.
+     * @param logger - the logger of the games.
+     */
+    public FreezeScheduler(Clock clock, Logger logger) {
+        this.clock = clock;
+        this.logger = logger;
+    }
+
+    /**
+     * Freezes a player (the caller already marked the player as frozen).
+     *
+     * @param game   - the environment of the player's game.
+     * @param player - the player to freeze.
+     * @param millis - the length of the freeze in milliseconds.
+     */
+    void freeze(Env game, Player player, long millis) {
+        long now = clock.millis();
+        game.ui.setFreeze(player.id, millis);
+        lock.lock();
+        try {
+            long deadline = now + millis;
+            long first = deadline - (millis - 1) / 1000 * 1000; // a whole number of seconds before the deadline
+            ticks.add(new Tick(first, added++, game, player, deadline));
+        } finally {
+            lock.unlock();
+        }
+        clock.unpark(schedulerThread);
+    }
+
+    /**
+     * Drops the pending ticks of a game that ended (its frozen players stay frozen).
+     *
+     * @param game - the environment of the game.
+     */
+    void cancel(Env game) {
+        lock.lock();
+        try {
+            ticks.removeIf(tick -> tick.game == game);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called when the scheduler should be terminated (after all of its games ended).
+     */
+    public void terminate() {
+        terminate = true;
+        clock.unpark(schedulerThread);
+    }
+
+    @Override
+    public void run() {
+        schedulerThread = Thread.currentThread();
+        logger.info("Thread " + Thread.currentThread().getName() + " starting.");
+        List<Tick> due = new ArrayList<>();
+        while (!terminate) {
+            long now = clock.millis();
+            long next = -1;
+            lock.lock();
+            try {
+                while (!ticks.isEmpty() && ticks.peek().time <= now)
+                    due.add(ticks.poll());
+                for (Tick tick : due)
+                    if (tick.time < tick.deadline)
+                        ticks.add(new Tick(Math.min(tick.time + 1000, tick.deadline), added++, tick.game, tick.player,
+                                tick.deadline));
+                if (!ticks.isEmpty()) next = ticks.peek().time;
+            } finally {
+                lock.unlock();
+            }
+            for (Tick tick : due) { // outside the lock, the user interface may be slow
+                if (tick.time < tick.deadline) {
+                    tick.game.ui.setFreeze(tick.player.id, tick.deadline - tick.time);
+                } else {
+                    tick.game.ui.setFreeze(tick.player.id, 0);
+                    tick.player.unfreeze();
+                }
+            }
+            due.clear();
+            if (!terminate)
+                clock.park(next);
+        }
+        logger.info("Thread " + Thread.currentThread().getName() + " terminated.");
+    }
+}
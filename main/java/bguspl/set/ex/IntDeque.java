@@ -0,0 +1,132 @@
+package bguspl.set.ex;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * A fixed capacity double ended queue of primitive ints, stored in a ring buffer.
+ *
+ * @inv 0 <= size <= elements.length
+ */
+public class IntDeque {
+
+    /**
+     * The ring buffer holding the elements, starting at head.
+     */
+    private final int[] elements;
+
+    /**
+     * The index of the first element.
+     */
+    private int head;
+
+    /**
+     * The number of elements in the deque.
+     */
+    private int size;
+
+    /**
+     * @param capacity - the maximum number of elements the deque can hold.
+     */
+    public IntDeque(int capacity) {
+        elements = new int[capacity];
+    }
+
+    /**
+     * @return - the number of elements in the deque.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return - true iff the deque contains no elements.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param index - the position of the element, counted from the front.
+     * @return - the element at the given position.
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("index: " + index + " size: " + size);
+        return elements[(head + index) % elements.length];
+    }
+
+    /**
+     * Inserts an element at the front of the deque.
+     * @param element - the element to insert.
+     */
+    public void addFirst(int element) {
+        if (size == elements.length) throw new IllegalStateException("deque is full");
+        head = (head + elements.length - 1) % elements.length;
+        elements[head] = element;
+        ++size;
+    }
+
+    /**
+     * Inserts an element at the back of the deque.
+     * @param element - the element to insert.
+     */
+    public void addLast(int element) {
+        if (size == elements.length) throw new IllegalStateException("deque is full");
+        elements[(head + size) % elements.length] = element;
+        ++size;
+    }
+
+    /**
+     * Removes the element at the front of the deque.
+     * @return - the removed element.
+     */
+    public int removeFirst() {
+        if (size == 0) throw new NoSuchElementException("deque is empty");
+        int element = elements[head];
+        head = (head + 1) % elements.length;
+        --size;
+        return element;
+    }
+
+    /**
+     * Removes the element at the back of the deque.
+     * @return - the removed element.
+     */
+    public int removeLast() {
+        if (size == 0) throw new NoSuchElementException("deque is empty");
+        return elements[(head + --size) % elements.length];
+    }
+
+    /**
+     * Removes all elements from the deque.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Shuffles the elements in place (Fisher-Yates).
+     * @param random - the source of randomness.
+     */
+    public void shuffle(Random random) {
+        for (int i = size - 1; i > 0; --i) {
+            int a = (head + i) % elements.length;
+            int b = (head + random.nextInt(i + 1)) % elements.length;
+            int element = elements[a];
+            elements[a] = elements[b];
+            elements[b] = element;
+        }
+    }
+
+    /**
+     * @return - a new array with the elements of the deque, from front to back.
+     */
+    public int[] toArray() {
+        int[] array = new int[size];
+        int first = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, array, 0, first);
+        System.arraycopy(elements, 0, array, first, size - first);
+        return array;
+    }
+}
@@ -0,0 +1,114 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The pending key presses of a player: a fixed capacity ring buffer of slots, written by one thread (the keyboard
+ * input thread of a human player, or the AI thread of a computer player) and read by the player thread, without
+ * locks or allocations.
+ * <p>
+ * Each press toggles the player's token on the slot, so two presses of the same slot cancel out. When the buffer is
+ * full, a press is either dropped, or (if coalescing) recorded in a bitmask of overflowing slots, where a second
+ * press of the same slot cancels the first; the overflowing slots are read after the buffer, in slot order.
+ *
+ * @inv head <= tail <= head + presses.length
+ */
+public class KeyQueue {
+
+    /**
+     * The buffered presses: the press at position p is in presses[p % presses.length].
+     */
+    private final int[] presses;
+
+    /**
+     * The position of the next press to read. Moved by the reader, and by clear (which may be called by any thread).
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * The position of the next press to write (moved by the writer only).
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The overflowing slots (bit s for slot s), or null if overflowing presses are dropped.
+     */
+    private final AtomicLong overflow;
+
+    /**
+     * @param capacity - the number of presses the buffer holds.
+     * @param slots    - the number of slots on the table.
+     * @param coalesce - true iff presses to a full buffer should be coalesced (needs slots <= 64), false to drop them.
+     */
+    public KeyQueue(int capacity, int slots, boolean coalesce) {
+        presses = new int[capacity];
+        overflow = coalesce && slots <= Long.SIZE ? new AtomicLong() : null;
+    }
+
+    /**
+     * Adds a press (writer thread only).
+     *
+     * @param slot - the pressed slot.
+     * @return - true iff the press was added (false if it was dropped).
+     */
+    public boolean press(int slot) {
+        long position = tail.get();
+        if (position - head.get() < presses.length) {
+            presses[(int) (position % presses.length)] = slot;
+            tail.lazySet(position + 1); // publishes the press
+            return true;
+        }
+        if (overflow == null) return false;
+        long bit = 1L << slot;
+        overflow.accumulateAndGet(bit, (mask, b) -> mask ^ b); // non-capturing, so no allocation per press
+        return true;
+    }
+
+    /**
+     * Takes the next press (reader thread only).
+     *
+     * @return - the pressed slot, or -1 if there are no presses.
+     */
+    public int poll() {
+        while (true) {
+            long position = head.get();
+            if (position == tail.get()) break;
+            int slot = presses[(int) (position % presses.length)];
+            if (head.compareAndSet(position, position + 1)) return slot; // fails if the queue was cleared meanwhile
+        }
+        if (overflow == null) return -1;
+        while (true) {
+            long mask = overflow.get();
+            if (mask == 0) return -1;
+            if (overflow.compareAndSet(mask, mask & (mask - 1))) return Long.numberOfTrailingZeros(mask);
+        }
+    }
+
+    /**
+     * @return - the number of pending presses.
+     */
+    public int size() {
+        long first = head.get(); // read before tail, so the difference is never negative
+        int size = (int) (tail.get() - first);
+        return overflow == null ? size : size + Long.bitCount(overflow.get());
+    }
+
+    /**
+     * @return - true iff there are no pending presses.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Removes all pending presses (may be called by any thread).
+     */
+    public void clear() {
+        long end = tail.get();
+        long position;
+        do {
+            position = head.get();
+        } while (position < end && !head.compareAndSet(position, end));
+        if (overflow != null) overflow.set(0);
+    }
+}
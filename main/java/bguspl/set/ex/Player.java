@@ -1,10 +1,6 @@
 package bguspl.set.ex;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Queue;
 import java.util.Random;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 import bguspl.set.Env;
 
@@ -34,12 +30,12 @@ public class Player implements Runnable {
 	/**
 	 * The thread representing the current player.
 	 */
-	protected Thread playerThread;
+	protected volatile Thread playerThread;
 
 	/**
 	 * The thread of the AI (computer) player (an additional thread used to generate key presses).
 	 */
-	private Thread aiThread;
+	private volatile Thread aiThread;
 
 	/**
 	 * True iff the player is human (not a computer player).
@@ -56,14 +52,22 @@ public class Player implements Runnable {
 	 */
 	protected int score;
 
-	protected Queue<Integer> keyPress;
-	protected List<Integer> tokens;
+	protected KeyQueue keyPress; // written by the input (or AI) thread, read by the player thread
 
 	private boolean gracePenalty = false;
-	private boolean freeze; // indicates whether the player is frozen
+	private volatile boolean freeze; // indicates whether the player is frozen (cleared by the dealer's freeze scheduler)
 
 	private Dealer dealer;
-	protected boolean toAward = false;
+
+	/**
+	 * The claim waiting for the dealer's verdict (null if none).
+	 */
+	private volatile Claim pendingClaim;
+
+	/**
+	 * The source of the AI's key presses (seeded by the game's random seed and the player's id).
+	 */
+	private final Random random;
 	/**
 	 * The class constructor.
 	 *
@@ -74,11 +78,11 @@ public class Player implements Runnable {
 	 * @param human  - true iff the player is a human player (i.e. input is provided manually, via the keyboard).
 	 */
 	public Player(Env env, Dealer dealer, Table table, int id, boolean human) {
-		this.tokens = new LinkedList<>();
 		this.terminate = false;
 		this.dealer = dealer;
 		this.freeze = false;
-		this.keyPress = new ConcurrentLinkedQueue<>();
+		this.keyPress = new KeyQueue(env.config.featureSize, env.config.tableSize, env.config.coalesceInput);
+		this.random = new Random(env.randomSeed + 0x9E3779B97F4A7C15L * (id + 1));
 		this.score = 0;
 		this.env = env;
 		this.table = table;
@@ -97,110 +101,89 @@ public class Player implements Runnable {
 
 		while (!terminate) { // check if necessary
 			while(!keyPress.isEmpty()) {
-				try {synchronized(table) {
-					int slot = -1;
-					synchronized(keyPress) {
-						if(!keyPress.isEmpty()) {
-							slot = keyPress.remove();
-						}
-					}
-					if(slot != -1 && table.slotToCard[slot] == null)
-						slot = -1;
-					if(slot == -1) {
+				try {
+				Claim claim = null;
+				int slot = keyPress.poll();
+				if(slot == -1) {
+					break;
+				}
+				if(freeze) // pressed just before the freeze started
+					continue;
+				table.slotLock(slot).lock(); // the card in the slot cannot change while placing a token
+				try {
+					if(table.cardAt(slot) == -1) {
 						break;
 					}
-					if(tokens.contains(slot)) {
-						tokens.remove((Integer) slot);
+					if(table.hasToken(id, slot)) {
 						table.removeToken(id, slot);
 					}
-					else if(tokens.size() < env.config.featureSize) {
-						tokens.add(slot);
+					else if(table.countTokens(id) < env.config.featureSize) {
 						table.placeToken(id, slot);
 						gracePenalty = false;
 					}
+					if(table.countTokens(id) == env.config.featureSize)
+						claim = createClaim();
+				} finally {
+					table.slotLock(slot).unlock();
 				}
-				if(tokens.size() == env.config.featureSize) {
-					dealer.playerQ.add(this);
-					synchronized(dealer.playerQ) {
-						dealer.playerQ.notify();
-					}
-					synchronized(this) {
-						this.wait(100);
-					}
-					if(toAward)
-						penaltyForSet();						
-					else {
+				if(claim != null) {
+					pendingClaim = claim;
+					dealer.claim(claim);
+					if(terminate)
+						claim.reject(); // the dealer may have stopped handling claims
+					Claim.Verdict verdict = claim.awaitVerdict();
+					if(verdict == Claim.Verdict.ACCEPTED)
+						penaltyForSet();
+					else if(verdict == Claim.Verdict.REJECTED) {
 						penalty();
 					}
+					pendingClaim = null;
 					keyPress.clear();
 				}
 				} catch (InterruptedException e) {
 					e.printStackTrace();
 				}
-				synchronized(this) {
-					this.notifyAll();
-				}
+				signalInput();
 			}
-			if(!terminate){
-			synchronized(this) {
-				try {
-					this.wait();
-				} catch (InterruptedException e) {
-					this.notify();
-				}
-			}}         	           
+			try {
+				awaitKeyPress();
+			} catch (InterruptedException ignored) {}
 		}
-		if (!human) try { aiThread.join(); } catch (InterruptedException ignored) {}
+		if (!human) try { env.clock.join(aiThread); } catch (InterruptedException ignored) {}
 				env.logger.info("Thread " + Thread.currentThread().getName() + " terminated.");
 	}
 
 	/**
-	 * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly generates
-	 * key presses. If the queue of key presses is full, the thread waits until it is not full.
+	 * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly asks the
+	 * player's strategy (see Config::computerStrategy) for keys to press given a snapshot of the table, waits the
+	 * strategy's reaction time, presses the keys and waits until the player thread handled them (and any claim).
 	 */
 	private void createArtificialIntelligence() {
-		// note: this is a very, very smart AI (!)
-		aiThread = new Thread(() -> {
+		ComputerStrategy strategy = ComputerStrategy.create(env);
+		aiThread = env.newThread(() -> {
 			env.logger.info("Thread " + Thread.currentThread().getName() + " starting.");
+			int[] cards = new int[env.config.tableSize];
 			try {
-				Thread.sleep(1500);
-			} catch (InterruptedException e1) {
-				e1.printStackTrace();
-			}
-			while (!terminate) {
-				while(keyPress.size() < env.config.featureSize) {
-					synchronized(keyPress) {
-
-
-						Random rand = new Random();
-						int slot = rand.nextInt(env.config.rows * env.config.columns);
-						if(keyPress.contains(slot)) {
-							keyPress.remove(slot);
-							try {
-								synchronized(this) {
-									this.notifyAll();
-								}
-							}catch(Exception ignored) {	
-							}
-						}
-						else if(keyPress.size() < env.config.featureSize){
-							keyPress.add(slot);
-							try {
-								synchronized(this) {
-									this.notifyAll();
-								}
-							}catch(Exception ignored) {				
-							}
+				awaitFor(1500);
+				while (!terminate) {
+					table.snapshot(cards);
+					int[] keys = strategy.chooseKeys(cards, table.tokens(id), random);
+					if (keys.length == 0) { // nothing to press until the table changes
+						awaitInput(10);
+						continue;
+					}
+					awaitFor(strategy.reactionMillis());
+					for (int slot : keys) {
+						while (!terminate && !keyPress.press(slot)) { // full: let the player thread catch up
+							signalInput();
+							awaitInput(10);
 						}
 					}
+					signalInput();
+					while (!terminate && (!keyPress.isEmpty() || pendingClaim != null || freeze))
+						awaitInput(10);
 				}
-				synchronized(this) {
-					this.notifyAll();
-				}
-				try {
-					synchronized (this) { wait(10); }
-				} catch (InterruptedException ignored) {}
-			}
+			} catch (InterruptedException ignored) {}
 			env.logger.info("Thread " + Thread.currentThread().getName() + " terminated.");
 		}, "computer-" + id);
 		aiThread.start();
@@ -211,6 +194,69 @@ public class Player implements Runnable {
 	 */
 	public void terminate() {
 		terminate = true;
+		Claim claim = pendingClaim;
+		if (claim != null)
+			claim.reject();
+		signalInput();
+	}
+
+	/**
+	 * Wakes up the player and AI threads waiting for a change in the key presses (or for termination).
+	 */
+	private void signalInput() {
+		Thread current = Thread.currentThread();
+		if (playerThread != current) // a thread unparking itself would not wait the next time it parks
+			env.clock.unpark(playerThread);
+		if (aiThread != current)
+			env.clock.unpark(aiThread);
+	}
+
+	/**
+	 * Waits for a change in the key presses (or for termination), up to the given time.
+	 *
+	 * @param millis - the maximal time to wait in milliseconds.
+	 */
+	private void awaitInput(long millis) throws InterruptedException {
+		if (Thread.interrupted()) throw new InterruptedException();
+		if (!terminate)
+			env.clock.park(env.clock.millis() + millis);
+	}
+
+	/**
+	 * Waits for the given time, or until the game is terminated.
+	 *
+	 * @param millis - the time to wait in milliseconds.
+	 */
+	private void awaitFor(long millis) throws InterruptedException {
+		long deadline = env.clock.millis() + millis;
+		while (!terminate && env.clock.millis() < deadline)
+			awaitInput(deadline - env.clock.millis());
+	}
+
+	/**
+	 * Waits until there is a key press to handle or the game is terminated.
+	 */
+	private void awaitKeyPress() throws InterruptedException {
+		while (keyPress.isEmpty() && !terminate) {
+			if (Thread.interrupted()) throw new InterruptedException();
+			env.clock.park(-1);
+		}
+	}
+
+	/**
+	 * Takes a snapshot of the player's tokens and the cards under them (the dealer verifies the cards are still there).
+	 *
+	 * @return - the claim of the set marked by the tokens.
+	 */
+	private Claim createClaim() {
+		long marked = table.tokens(id);
+		int[] slots = new int[Long.bitCount(marked)];
+		int[] cards = new int[slots.length];
+		for (int i = 0; i < slots.length; i++, marked &= marked - 1) {
+			slots[i] = Long.numberOfTrailingZeros(marked);
+			cards[i] = table.cardAt(slots[i]);
+		}
+		return new Claim(id, slots, cards, env.clock);
 	}
 
 	/**
@@ -218,28 +264,10 @@ public class Player implements Runnable {
 	 *
 	 * @param slot - the slot corresponding to the key pressed.
 	 */
-	public void keyPressed(Integer slot) {
-        if(slot>=12 || slot<0) return;
-		if(!freeze && keyPress.size() < 3) {
-			if(keyPress.contains(slot)) {
-				keyPress.remove(slot);
-				try {
-					synchronized(this) {
-						this.notifyAll();
-					}
-				}catch(Exception ignored) {	
-				}
-			}
-			else if(keyPress.size() < 3){
-				keyPress.add(slot);
-				try {
-					synchronized(this) {
-						this.notifyAll();
-					}
-				}catch(Exception ignored) {				
-				}
-			}
-		}
+	public void keyPressed(int slot) {
+		if(slot >= env.config.tableSize || slot < 0) return;
+		if(!freeze && keyPress.press(slot)) // dropped while frozen, or if the queue is full (see Config::coalesceInput)
+			signalInput();
 	}
 
 	/**
@@ -254,20 +282,7 @@ public class Player implements Runnable {
 	}
 
 	public void penaltyForSet() {	
-		try {
-			long i = env.config.pointFreezeMillis;
-			freeze = true;
-			while(i>600) {
-				env.ui.setFreeze(this.id, i);
-				i=i-500;
-				Thread.sleep(500);
-			}
-			env.ui.setFreeze(this.id, 0);
-			freeze = false;
-			toAward = false;
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
+		freeze(env.config.pointFreezeMillis);
 		int ignored = table.countCards(); // this part is just for demonstration in the unit tests
 	}
 
@@ -276,23 +291,31 @@ public class Player implements Runnable {
 	 */
 	public void penalty() {
 		if(!gracePenalty) {
-			try {
-				long i = env.config.penaltyFreezeMillis;
-				freeze = true;
-				while(i>600) {
-					env.ui.setFreeze(this.id, i);
-					i=i-500;
-					Thread.sleep(500);
-				}
-				env.ui.setFreeze(this.id, 0);
-				freeze = false;
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
+			freeze(env.config.penaltyFreezeMillis);
 			gracePenalty = true;
 		}
 	}
 
+	/**
+	 * Freezes the player: its key presses are dropped until the dealer's freeze scheduler unfreezes it (the player
+	 * thread does not wait for the freeze to end).
+	 *
+	 * @param millis - the length of the freeze in milliseconds.
+	 */
+	private void freeze(long millis) {
+		if (millis <= 0) return;
+		freeze = true;
+		dealer.freeze(this, millis);
+	}
+
+	/**
+	 * Called by the freeze scheduler when the player's freeze ends.
+	 */
+	void unfreeze() {
+		freeze = false;
+		signalInput();
+	}
+
 	public int score() {
 		return score;
 	}
@@ -0,0 +1,30 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Random;
+
+/**
+ * Presses random slots, so almost all of its claims are illegal (the original computer player).
+ */
+class RandomStrategy implements ComputerStrategy {
+
+    private final Env env;
+
+    RandomStrategy(Env env) {
+        this.env = env;
+    }
+
+    @Override
+    public int[] chooseKeys(int[] cards, long tokens, Random random) {
+        int[] keys = new int[Math.max(1, env.config.featureSize - Long.bitCount(tokens))];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = random.nextInt(cards.length);
+        return keys;
+    }
+
+    @Override
+    public long reactionMillis() {
+        return 0;
+    }
+}
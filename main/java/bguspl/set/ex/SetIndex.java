@@ -0,0 +1,179 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class holds a collection of cards and the number of legal sets that can be formed from them, updating the
+ * number incrementally as cards are added and removed.
+ *
+ * @inv members[position[c]] == c iff c is in the collection
+ * @inv sets == the number of legal sets formed by the cards in the collection
+ */
+class SetIndex {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The cards in the collection (the first size entries are used).
+     */
+    private final int[] members;
+
+    /**
+     * The index of each card in members (-1 if the card is not in the collection).
+     */
+    private final int[] position;
+
+    /**
+     * The number of cards in the collection.
+     */
+    private int size;
+
+    /**
+     * The number of legal sets formed by the cards in the collection (-1 if it needs to be recounted).
+     */
+    private int sets;
+
+    /**
+     * True iff sets can be counted incrementally using Util::completeSet (i.e. config.featureSize >= 3).
+     */
+    private final boolean incremental;
+
+    /**
+     * Scratch arrays for enumerating the combinations completed by a card.
+     */
+    private final int[] combination;
+    private final int[] chosen;
+
+    /**
+     * Creates an empty collection.
+     *
+     * @param env      - the game environment object.
+     * @param capacity - the maximum number of cards in the collection at once.
+     */
+    SetIndex(Env env, int capacity) {
+        this.env = env;
+        members = new int[capacity];
+        position = new int[env.config.deckSize];
+        for (int i = 0; i < position.length; ++i)
+            position[i] = -1;
+        incremental = env.config.featureSize >= 3;
+        combination = new int[Math.max(env.config.featureSize - 2, 0)];
+        chosen = new int[Math.max(env.config.featureSize - 1, 0)];
+    }
+
+    /**
+     * Creates a collection of the whole deck, in linear time: the number of sets in the deck is counted once by
+     * env.util and shared with the other games.
+     *
+     * @param env - the game environment object.
+     * @return - the collection.
+     */
+    static SetIndex deck(Env env) {
+        SetIndex index = new SetIndex(env, env.config.deckSize);
+        for (int card = 0; card < env.config.deckSize; ++card) {
+            index.members[card] = card;
+            index.position[card] = card;
+        }
+        index.size = env.config.deckSize;
+        index.sets = env.util.setsInDeck();
+        return index;
+    }
+
+    /**
+     * @param card - the card id.
+     * @return - true iff the card is in the collection.
+     */
+    boolean contains(int card) {
+        return position[card] != -1;
+    }
+
+    /**
+     * @return - the number of cards in the collection.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a card to the collection, in time linear in the number of cards for the standard feature size of 3.
+     *
+     * @param card - the card id.
+     */
+    void add(int card) {
+        if (contains(card)) return;
+        if (incremental && sets != -1) sets += countSetsWith(card);
+        else sets = -1;
+        members[size] = card;
+        position[card] = size++;
+    }
+
+    /**
+     * Removes a card from the collection, in time linear in the number of cards for the standard feature size of 3.
+     *
+     * @param card - the card id.
+     */
+    void remove(int card) {
+        if (!contains(card)) return;
+        int last = members[--size];
+        members[position[card]] = last;
+        position[last] = position[card];
+        position[card] = -1;
+        if (incremental && sets != -1) sets -= countSetsWith(card);
+        else sets = -1;
+    }
+
+    /**
+     * @return - the number of legal sets formed by the cards in the collection.
+     */
+    int sets() {
+        if (sets == -1) sets = env.util.findSets(toList(), Integer.MAX_VALUE).size();
+        return sets;
+    }
+
+    /**
+     * Counts the legal sets formed by a card (not in the collection) together with cards in the collection. Each set
+     * is counted once, by the combination of its other cards that leaves out the highest one.
+     *
+     * @param card - the card id.
+     * @return - the number of sets.
+     */
+    private int countSetsWith(int card) {
+        int r = combination.length;
+        if (size < r + 1) return 0;
+
+        int count = 0;
+        for (int i = 0; i < r; ++i)
+            combination[i] = i;
+        chosen[r] = card;
+
+        while (combination[r - 1] < size) {
+            int highest = -1;
+            for (int i = 0; i < r; ++i) {
+                chosen[i] = members[combination[i]];
+                highest = Math.max(highest, chosen[i]);
+            }
+            int third = env.util.completeSet(chosen);
+            if (third > highest && contains(third)) ++count;
+
+            // generate next combination in lexicographic order
+            int t = r - 1;
+            while (t != 0 && combination[t] == size - r + t) --t;
+            combination[t]++;
+            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+        }
+        return count;
+    }
+
+    private List<Integer> toList() {
+        List<Integer> cards = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i)
+            cards.add(members[i]);
+        return cards;
+    }
+}
@@ -0,0 +1,82 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Finds a legal set on the table (with the configured set finder) and presses its slots, after a human-like reaction
+ * time. With some probability it makes a mistake and swaps one card of the set with another card on the table.
+ */
+class SolverStrategy implements ComputerStrategy {
+
+    private final Env env;
+    private final long reactionMillis;
+    private final double mistakeRate;
+
+    /**
+     * @param env            - the game environment object.
+     * @param reactionMillis - the default reaction time (config.computerReactionMillis overrides it).
+     * @param mistakeRate    - the probability of pressing a wrong card.
+     */
+    SolverStrategy(Env env, long reactionMillis, double mistakeRate) {
+        this.env = env;
+        this.reactionMillis = env.config.computerReactionMillis >= 0 ? env.config.computerReactionMillis : reactionMillis;
+        this.mistakeRate = mistakeRate;
+    }
+
+    @Override
+    public int[] chooseKeys(int[] cards, long tokens, Random random) {
+        int[] slots = new int[cards.length];
+        int[] onTable = new int[cards.length];
+        int count = 0;
+        for (int slot = 0; slot < cards.length; ++slot)
+            if (cards[slot] != -1) {
+                slots[count] = slot;
+                onTable[count++] = cards[slot];
+            }
+        if (count < env.config.featureSize) return new int[0];
+        List<int[]> sets = env.util.findSets(Arrays.copyOf(onTable, count), Integer.MAX_VALUE);
+        if (sets.isEmpty()) return new int[0];
+
+        int[] set = sets.get(random.nextInt(sets.size()));
+        boolean[] target = new boolean[cards.length];
+        for (int card : set)
+            for (int i = 0; i < count; ++i)
+                if (onTable[i] == card) target[slots[i]] = true;
+        if (count > set.length && random.nextDouble() < mistakeRate) {
+            int wrong;
+            do wrong = slots[random.nextInt(count)]; while (target[wrong]);
+            int[] marked = slotsOf(target);
+            target[marked[random.nextInt(marked.length)]] = false;
+            target[wrong] = true;
+        }
+
+        // remove the tokens that are not on the chosen cards, then place the missing ones
+        int[] keys = new int[2 * env.config.featureSize];
+        int pressed = 0;
+        for (long marked = tokens; marked != 0; marked &= marked - 1)
+            if (!target[Long.numberOfTrailingZeros(marked)]) keys[pressed++] = Long.numberOfTrailingZeros(marked);
+        for (int slot : slotsOf(target))
+            if ((tokens & 1L << slot) == 0) keys[pressed++] = slot;
+        return Arrays.copyOf(keys, pressed);
+    }
+
+    private static int[] slotsOf(boolean[] marked) {
+        int count = 0;
+        for (boolean m : marked)
+            if (m) ++count;
+        int[] slots = new int[count];
+        count = 0;
+        for (int slot = 0; slot < marked.length; ++slot)
+            if (marked[slot]) slots[count++] = slot;
+        return slots;
+    }
+
+    @Override
+    public long reactionMillis() {
+        return reactionMillis;
+    }
+}
@@ -2,15 +2,21 @@ package bguspl.set.ex;
 
 import bguspl.set.Env;
 
+import java.lang.invoke.VarHandle;
 import java.util.Arrays;
-import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This class contains the data that is visible to the player.
  *
  * @inv slotToCard[x] == y iff cardToSlot[y] == x
+ * @inv cards == the number of slots x such that slotToCard[x] != -1
+ * @inv bit s of playerTokens[p] is set iff bit p of the players of slot s (in slotPlayers) is set
+ *
+ * Each slot has its own lock: a player changing its tokens on a slot holds the slot's lock, and the card in a slot is
+ * only placed or removed while holding it, so players working on different slots do not wait for each other.
  */
 public class Table {
 
@@ -20,17 +26,57 @@ public class Table {
     private final Env env;
 
     /**
-     * Mapping between a slot and the card placed in it (null if none).
+     * Mapping between a slot and the card placed in it (-1 if none).
+     */
+    private final int[] slotToCard; // card per slot (if any)
+
+    /**
+     * Mapping between a card and the slot it is in (-1 if none).
+     */
+    private final int[] cardToSlot; // slot per card (if any)
+
+    /**
+     * The number of cards currently on the table.
+     */
+    private volatile int cards;
+
+    /**
+     * The lock of each slot.
      */
-    protected final Integer[] slotToCard; // card per slot (if any)
+    private final Lock[] slotLocks; // not monitors, so that a virtual thread blocking while holding one is not pinned
 
     /**
-     * Mapping between a card and the slot it is in (null if none).
+     * The slots of each player's tokens (bit s for slot s), changed atomically since a player and the dealer may change
+     * the tokens of the player on different slots at the same time.
      */
-    protected final Integer[] cardToSlot; // slot per card (if any)
+    private final AtomicLongArray playerTokens;
 
     /**
-     * Constructor for testing.
+     * The players with a token on each slot: bit p of slotPlayers[slot * playerWords + p / 64] is set iff player p has a
+     * token on the slot. Changed while holding the slot's lock.
+     */
+    private final long[] slotPlayers;
+    private final int playerWords;
+
+    /**
+     * Incremented before and after each change of the cards on the table (odd while a change is in progress), so readers
+     * can take a consistent snapshot without locking (only the dealer places and removes cards).
+     */
+    private volatile int version;
+
+    /**
+     * The cards currently on the table, with the number of legal sets among them.
+     */
+    private final SetIndex onTable;
+
+    /**
+     * The cards still in the game (on the table or in the dealer's deck), with the number of legal sets among them.
+     */
+    private final SetIndex inPlay;
+
+    /**
+     * Constructor for testing. The table starts with the cards in the given mappings, but copies them: it does not see
+     * later changes to the arrays, and does not write its own changes back to them (use placeCard, cardAt and slotOf).
      *
      * @param env        - the game environment objects.
      * @param slotToCard - mapping between a slot and the card placed in it (null if none).
@@ -38,9 +84,7 @@ public class Table {
      */
     public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
 
-        this.env = env;
-        this.slotToCard = slotToCard;
-        this.cardToSlot = cardToSlot;
+        this(env, unbox(slotToCard), unbox(cardToSlot));
     }
 
     /**
@@ -50,19 +94,98 @@ public class Table {
      */
     public Table(Env env) {
 
-        this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
+        this(env, empty(env.config.tableSize), empty(env.config.deckSize));
+    }
+
+    private Table(Env env, int[] slotToCard, int[] cardToSlot) {
+
+        this.env = env;
+        this.slotToCard = slotToCard;
+        this.cardToSlot = cardToSlot;
+        this.slotLocks = new Lock[slotToCard.length];
+        for (int slot = 0; slot < slotLocks.length; ++slot)
+            slotLocks[slot] = new ReentrantLock();
+        if (slotToCard.length > Long.SIZE)
+            throw new IllegalArgumentException("tables of more than " + Long.SIZE + " slots are not supported");
+        this.playerTokens = new AtomicLongArray(env.config.players);
+        this.playerWords = (env.config.players + Long.SIZE - 1) / Long.SIZE;
+        this.slotPlayers = new long[slotToCard.length * playerWords];
+        this.onTable = new SetIndex(env, slotToCard.length);
+        this.inPlay = SetIndex.deck(env);
+        for (int card : slotToCard)
+            if (card != -1) {
+                onTable.add(card);
+                ++cards;
+            }
+    }
+
+    private static int[] unbox(Integer[] mapping) {
+        return Arrays.stream(mapping).mapToInt(value -> value == null ? -1 : value).toArray();
+    }
+
+    private static int[] empty(int length) {
+        int[] mapping = new int[length];
+        Arrays.fill(mapping, -1);
+        return mapping;
+    }
+
+    /**
+     * @param slot - the slot number.
+     * @return - the card placed in the slot, or -1 if the slot is empty.
+     */
+    public int cardAt(int slot) {
+        return slotToCard[slot];
+    }
+
+    /**
+     * @param card - the card id.
+     * @return - the slot the card is placed in, or -1 if the card is not on the table.
+     */
+    public int slotOf(int card) {
+        return cardToSlot[card];
+    }
+
+    /**
+     * Copies the cards on the table as they were at one point in time (between two changes of the dealer).
+     *
+     * @param cards - the array to fill with the card in each slot (-1 for an empty slot), of length config.tableSize.
+     */
+    public void snapshot(int[] cards) {
+        while (true) {
+            int before = version;
+            if ((before & 1) == 0) {
+                System.arraycopy(slotToCard, 0, cards, 0, slotToCard.length);
+                VarHandle.acquireFence(); // the copy is done before version is read again
+                if (version == before) return;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * @param slot - the slot number.
+     * @return - the lock to hold while changing tokens on the slot or the card in it.
+     */
+    public Lock slotLock(int slot) {
+        return slotLocks[slot];
     }
 
     /**
      * This method prints all possible legal sets of cards that are currently on the table.
      */
     public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
+        int[] deck = Arrays.stream(slotToCard).filter(card -> card != -1).toArray();
+        env.util.forEachSet(deck, set -> { // streamed, the sets are never collected
             StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
-            List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted().collect(Collectors.toList());
-            int[][] features = env.util.cardsToFeatures(set);
-            System.out.println(sb.append("slots: ").append(slots).append(" features: ").append(Arrays.deepToString(features)));
+            int[] slots = Arrays.stream(set).map(card -> cardToSlot[card]).sorted().toArray();
+            sb.append("slots: ").append(Arrays.toString(slots)).append(" features: [");
+            for (int j = 0; j < set.length; ++j) {
+                sb.append(j == 0 ? "[" : ", [");
+                for (int i = 0; i < env.config.featureCount; ++i)
+                    sb.append(i == 0 ? "" : ", ").append(env.util.cardFeature(set[j], i));
+                sb.append(']');
+            }
+            System.out.println(sb.append(']'));
         });
     }
 
@@ -72,13 +195,27 @@ public class Table {
      * @return - the number of cards on the table.
      */
     public int countCards() {
-        int cards = 0;
-        for (Integer card : slotToCard)
-            if (card != null)
-                ++cards;
         return cards;
     }
 
+    /**
+     * Count the number of legal sets among the cards currently on the table.
+     *
+     * @return - the number of sets on the table.
+     */
+    public int setsOnTable() {
+        return onTable.sets();
+    }
+
+    /**
+     * Count the number of legal sets among the cards still in the game (on the table or in the dealer's deck).
+     *
+     * @return - the number of sets left in the game.
+     */
+    public int setsInPlay() {
+        return inPlay.sets();
+    }
+
     /**
      * Places a card on the table in a grid slot.
      * @param card - the card id to place in the slot.
@@ -87,12 +224,24 @@ public class Table {
      * @post - the card placed is on the table, in the assigned slot.
      */
     public void placeCard(int card, int slot) {
+        slotLocks[slot].lock();
+        version++;
+        VarHandle.releaseFence(); // the changes below are not reordered before version becomes odd
         try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {}
-
-        cardToSlot[card] = slot;
-        slotToCard[slot] = card;
+            if (slotToCard[slot] != -1) {
+                cardToSlot[slotToCard[slot]] = -1;
+                onTable.remove(slotToCard[slot]);
+                --cards;
+            }
+            cardToSlot[card] = slot;
+            slotToCard[slot] = card;
+            ++cards;
+            onTable.add(card);
+            inPlay.add(card);
+        } finally {
+            version++;
+            slotLocks[slot].unlock();
+        }
         env.ui.placeCard(card, slot);
     }
 
@@ -101,33 +250,99 @@ public class Table {
      * @param slot - the slot from which to remove the card.
      */
     public void removeCard(int slot) {
+        slotLocks[slot].lock();
+        version++;
+        VarHandle.releaseFence(); // the changes below are not reordered before version becomes odd
         try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {}
-        int card = slotToCard[slot];
-        cardToSlot[card] = null;
-        slotToCard[slot] = null;
-
+            int card = slotToCard[slot];
+            if (card == -1) return;
+            cardToSlot[card] = -1;
+            slotToCard[slot] = -1;
+            --cards;
+            onTable.remove(card);
+        } finally {
+            version++;
+            slotLocks[slot].unlock();
+        }
         env.ui.removeCard(slot);
     }
 
     /**
-     * Places a player token on a grid slot.
+     * Removes a card from a grid slot on the table and from the game (e.g. after it was part of a collected set).
+     * @param slot - the slot from which to remove the card.
+     */
+    public void discardCard(int slot) {
+        int card = slotToCard[slot];
+        if (card == -1) return;
+        removeCard(slot);
+        inPlay.remove(card);
+    }
+
+    /**
+     * Places a player token on a grid slot (while holding the slot's lock).
      * @param player - the player the token belongs to.
      * @param slot   - the slot on which to place the token.
      */
     public void placeToken(int player, int slot) {
+        playerTokens.accumulateAndGet(player, 1L << slot, (mask, bit) -> mask | bit);
+        slotPlayers[slot * playerWords + player / Long.SIZE] |= 1L << player;
         env.ui.placeToken(player, slot);
     }
 
     /**
-     * Removes a token of a player from a grid slot.
+     * Removes a token of a player from a grid slot (while holding the slot's lock).
      * @param player - the player the token belongs to.
      * @param slot   - the slot from which to remove the token.
      * @return       - true iff a token was successfully removed.
      */
     public boolean removeToken(int player, int slot) {
+        long before = playerTokens.getAndAccumulate(player, ~(1L << slot), (mask, keep) -> mask & keep);
+        if ((before & 1L << slot) == 0) return false;
+        slotPlayers[slot * playerWords + player / Long.SIZE] &= ~(1L << player);
         env.ui.removeToken(player, slot);
         return true;
     }
+
+    /**
+     * Removes the tokens of all players from a grid slot (while holding the slot's lock).
+     * @param slot - the slot from which to remove the tokens.
+     */
+    public void removeTokens(int slot) {
+        boolean removed = false;
+        for (int word = 0; word < playerWords; ++word) {
+            long players = slotPlayers[slot * playerWords + word];
+            slotPlayers[slot * playerWords + word] = 0;
+            for (; players != 0; players &= players - 1) {
+                int player = word * Long.SIZE + Long.numberOfTrailingZeros(players);
+                playerTokens.accumulateAndGet(player, ~(1L << slot), (mask, keep) -> mask & keep);
+                removed = true;
+            }
+        }
+        if (removed) env.ui.removeTokens(slot);
+    }
+
+    /**
+     * @param player - the player.
+     * @param slot   - the slot.
+     * @return       - true iff the player has a token on the slot.
+     */
+    public boolean hasToken(int player, int slot) {
+        return (playerTokens.get(player) & 1L << slot) != 0;
+    }
+
+    /**
+     * @param player - the player.
+     * @return       - the slots of the player's tokens (bit s for slot s).
+     */
+    public long tokens(int player) {
+        return playerTokens.get(player);
+    }
+
+    /**
+     * @param player - the player.
+     * @return       - the number of tokens the player has on the table.
+     */
+    public int countTokens(int player) {
+        return Long.bitCount(playerTokens.get(player));
+    }
 }
@@ -0,0 +1,117 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncFileHandlerTest {
+
+    Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("log", ".log");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private static class MessageFormatter extends Formatter {
+        @Override
+        public String format(LogRecord record) {
+            return record.getMessage() + "\n";
+        }
+    }
+
+    private AsyncFileHandler open(int capacity) throws IOException {
+        AsyncFileHandler handler = new AsyncFileHandler(file.toString(), capacity);
+        handler.setFormatter(new MessageFormatter());
+        return handler;
+    }
+
+    private static void publish(AsyncFileHandler handler, int producer, int count) {
+        for (int i = 0; i < count; ++i)
+            handler.publish(new LogRecord(Level.INFO, producer + " " + i));
+    }
+
+    /*@post: every record of every producer is written exactly once, in the order each producer published them, and
+     *       close writes the records that were still buffered.
+     */
+    @Test
+    void publish_WritesEveryRecordOnce() throws Exception {
+
+        int producers = 4;
+        int count = 2000;
+        AsyncFileHandler handler = open(64);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; ++p) {
+            int producer = p;
+            threads[p] = new Thread(() -> publish(handler, producer, count));
+            threads[p].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        handler.close(); // no flush before: close must not lose the tail
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(producers * count, lines.size());
+        assertEquals(producers * count, new HashSet<>(lines).size());
+        int[] next = new int[producers];
+        for (String line : lines) {
+            String[] fields = line.split(" ");
+            int producer = Integer.parseInt(fields[0]);
+            assertEquals(next[producer]++, Integer.parseInt(fields[1]));
+        }
+        for (int p = 0; p < producers; ++p)
+            assertEquals(count, next[p]);
+    }
+
+    /*@post: a producer publishing to a full buffer waits for the writer, and no record is lost or reordered.
+     */
+    @Test
+    void publish_WaitsWhenTheBufferIsFull() throws IOException {
+
+        int count = 1000;
+        AsyncFileHandler handler = open(2);
+        publish(handler, 0, count);
+        handler.flush();
+        assertEquals(count, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+        handler.close();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(count, lines.size());
+        for (int i = 0; i < count; ++i)
+            assertEquals("0 " + i, lines.get(i));
+    }
+
+    /*@post: records published after close are dropped.
+     */
+    @Test
+    void publish_DropsRecordsAfterClose() throws IOException {
+
+        AsyncFileHandler handler = open(16);
+        publish(handler, 0, 3);
+        handler.close();
+        publish(handler, 1, 3);
+
+        Set<String> lines = new HashSet<>(Files.readAllLines(file, StandardCharsets.UTF_8));
+        assertEquals(3, lines.size());
+        assertTrue(lines.contains("0 2"));
+    }
+}
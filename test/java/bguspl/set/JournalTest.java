@@ -0,0 +1,143 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalTest {
+
+    Path file;
+    Config config;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("journal", ".bin");
+        Properties properties = new Properties();
+        properties.setProperty("HumanPlayers", "2");
+        properties.setProperty("ComputerPlayers", "0");
+        config = new Config(Logger.getAnonymousLogger(), properties);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /*@post: the records are read back in order with their fields, after the header.
+     */
+    @Test
+    void next_ReadsTheRecordsBack() throws IOException {
+
+        try (Journal journal = new Journal(file.toString(), config, new SystemClock(false), null)) {
+            journal.placeCard(17, 3);
+            journal.claim(1, new int[]{3, 4, 5}, new int[]{17, 20, 23});
+            journal.verdict(1, true);
+        }
+
+        assertEquals(Journal.RECORD_SIZE * 6, Files.size(file));
+        try (JournalReader reader = new JournalReader(file.toString())) {
+            assertEquals(2, reader.players());
+            assertEquals(12, reader.tableSize());
+
+            assertTrue(reader.next());
+            assertEquals(Journal.CARD_PLACED, reader.type());
+            assertEquals(3, reader.slot());
+            assertEquals(17, reader.value());
+            for (int i = 0; i < 3; ++i) {
+                assertTrue(reader.next());
+                assertEquals(Journal.CLAIM, reader.type());
+                assertEquals(1, reader.player());
+            }
+            assertEquals(23, reader.value());
+            assertTrue(reader.next());
+            assertEquals(Journal.VERDICT, reader.type());
+            assertEquals(1, reader.value());
+            assertFalse(reader.next());
+        }
+    }
+
+    /*@post: a journal of more than one chunk is cut at its last record, and a journal left at its mapped length (when
+     *       the platform refuses to cut a mapped file) reads back the same records.
+     */
+    @Test
+    void close_CutsTheFileAfterTheLastRecord() throws IOException {
+
+        int records = Journal.CHUNK_SIZE / Journal.RECORD_SIZE + 10;
+        try (Journal journal = new Journal(file.toString(), config, new SystemClock(false), null)) {
+            for (int i = 1; i < records; ++i)
+                journal.setScore(0, i);
+        }
+        assertEquals((long) Journal.RECORD_SIZE * records, Files.size(file));
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Journal.RECORD_SIZE * 3), Files.size(file)); // an uncut tail
+        }
+        try (JournalReader reader = new JournalReader(file.toString())) {
+            for (int i = 1; i < records; ++i) {
+                assertTrue(reader.next());
+                assertEquals(i, reader.value());
+            }
+            assertFalse(reader.next());
+        }
+    }
+
+    /*@post: replaying the journal makes the same user interface calls as the game did.
+     */
+    @Test
+    void replay_RepeatsTheDisplayedEvents() throws IOException, InterruptedException {
+
+        List<String> played = new ArrayList<>();
+        List<String> replayed = new ArrayList<>();
+        try (Journal journal = new Journal(file.toString(), config, new SystemClock(false), new RecordingUserInterface(played))) {
+            journal.placeCard(5, 0);
+            journal.placeToken(1, 0);
+            journal.removeTokens(0);
+            journal.setScore(1, 1);
+            journal.reshuffle();
+            journal.announceWinner(new int[]{0, 1});
+        }
+
+        try (JournalReader reader = new JournalReader(file.toString())) {
+            reader.replay(new RecordingUserInterface(replayed), 0);
+        }
+        assertEquals(played, replayed);
+    }
+
+    private static class RecordingUserInterface implements UserInterface {
+
+        private final List<String> calls;
+
+        RecordingUserInterface(List<String> calls) {
+            this.calls = calls;
+        }
+
+        @Override public void placeCard(int card, int slot) { calls.add("placeCard " + card + " " + slot); }
+        @Override public void removeCard(int slot) { calls.add("removeCard " + slot); }
+        @Override public void placeToken(int player, int slot) { calls.add("placeToken " + player + " " + slot); }
+        @Override public void removeTokens() { calls.add("removeTokens"); }
+        @Override public void removeTokens(int slot) { calls.add("removeTokens " + slot); }
+        @Override public void removeToken(int player, int slot) { calls.add("removeToken " + player + " " + slot); }
+        @Override public void setCountdown(long millies, boolean warn) { calls.add("setCountdown " + millies + " " + warn); }
+        @Override public void setElapsed(long millies) { calls.add("setElapsed " + millies); }
+        @Override public void setFreeze(int player, long millies) { calls.add("setFreeze " + player + " " + millies); }
+        @Override public void setScore(int player, int score) { calls.add("setScore " + player + " " + score); }
+        @Override public void announceWinner(int[] players) { calls.add("announceWinner " + Arrays.toString(players)); }
+        @Override public void dispose() { calls.add("dispose"); }
+    }
+}
@@ -0,0 +1,113 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UtilImplTest {
+
+    private static UtilImpl util(int featureSize, int featureCount) {
+        Properties properties = new Properties();
+        properties.setProperty("FeatureSize", Integer.toString(featureSize));
+        properties.setProperty("FeatureCount", Integer.toString(featureCount));
+        properties.setProperty("SetFinder", "completion");
+        return new UtilImpl(new Config(Logger.getAnonymousLogger(), properties));
+    }
+
+    /**
+     * @return - the sets as sorted strings of their sorted cards, so that lists of sets compare as multisets.
+     */
+    private static List<String> canonical(List<int[]> sets) {
+        List<String> canonical = new ArrayList<>();
+        for (int[] set : sets) {
+            int[] cards = set.clone();
+            Arrays.sort(cards);
+            canonical.add(Arrays.toString(cards));
+        }
+        Collections.sort(canonical);
+        return canonical;
+    }
+
+    /**
+     * Checks that findAllSets and forEachSet find the same sets as findSets.
+     *
+     * @return - the number of sets.
+     */
+    private static int assertSameSets(UtilImpl util, int featureSize, int[] deck) {
+        List<String> expected = canonical(util.findSets(deck, Integer.MAX_VALUE));
+
+        int[] all = util.findAllSets(deck);
+        assertEquals(0, all.length % featureSize);
+        List<int[]> found = new ArrayList<>();
+        for (int i = 0; i < all.length; i += featureSize)
+            found.add(Arrays.copyOfRange(all, i, i + featureSize));
+        assertEquals(expected, canonical(found));
+
+        List<int[]> streamed = Collections.synchronizedList(new ArrayList<>());
+        util.forEachSet(deck, set -> streamed.add(set.clone())); // called concurrently, and the array is reused
+        assertEquals(expected, canonical(streamed));
+        return expected.size();
+    }
+
+    private static int[] shuffledDeck(int deckSize, long seed) {
+        List<Integer> cards = new ArrayList<>();
+        for (int card = 0; card < deckSize; ++card)
+            cards.add(card);
+        Collections.shuffle(cards, new Random(seed));
+        return cards.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /*@post: on a full 3^6 deck (searched in parallel) every pair of cards has exactly one completion, so there are
+     *       729 * 728 / 6 sets.
+     */
+    @Test
+    void findAllSets_FullDeckMatchesFindSets() {
+
+        UtilImpl util = util(3, 6);
+        assertEquals(729 * 728 / 6, assertSameSets(util, 3, shuffledDeck(729, 1)));
+    }
+
+    /*@post: the enumerations agree for sets of more than 3 cards.
+     */
+    @Test
+    void findAllSets_LargerSetsMatchFindSets() {
+
+        assertSameSets(util(4, 4), 4, shuffledDeck(256, 2));
+        assertSameSets(util(5, 3), 5, shuffledDeck(125, 3));
+    }
+
+    /*@post: the enumerations agree on small partial decks, which are searched sequentially.
+     */
+    @Test
+    void findAllSets_PartialDecksMatchFindSets() {
+
+        UtilImpl util = util(3, 4);
+        for (int seed = 0; seed < 20; ++seed) {
+            int[] deck = shuffledDeck(81, seed);
+            assertSameSets(util, 3, Arrays.copyOf(deck, 12));
+            assertSameSets(util, 3, Arrays.copyOf(deck, 40));
+        }
+        assertEquals(0, util.findAllSets(IntStream.range(0, 2).toArray()).length);
+    }
+
+    /*@post: the sets of the whole deck are counted once, and agree with findSets.
+     */
+    @Test
+    void setsInDeck_MatchesFindSets() {
+
+        UtilImpl util = util(3, 4);
+        assertEquals(81 * 80 / 6, util.setsInDeck());
+        assertEquals(81 * 80 / 6, util.setsInDeck());
+        UtilImpl larger = util(4, 3);
+        assertEquals(larger.findSets(IntStream.range(0, 64).toArray(), Integer.MAX_VALUE).size(), larger.setsInDeck());
+    }
+}
@@ -4,6 +4,7 @@ import bguspl.set.Config;
 import bguspl.set.Env;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,8 +12,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
 import java.util.logging.Logger;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -81,4 +87,108 @@ class DealerTest {
         assertFalse(changed , " the timer did not change because the time that sent is negetive.");
     }
 
+    private Config config(int featureCount) {
+        Properties properties = new Properties();
+        properties.setProperty("FeatureCount", Integer.toString(featureCount));
+        return new Config(logger, properties);
+    }
+
+    private static int[] shuffledDeck(Config config, long seed) {
+        List<Integer> cards = new ArrayList<>();
+        for (int card = 0; card < config.deckSize; ++card)
+            cards.add(card);
+        Collections.shuffle(cards, new Random(seed));
+        return cards.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Deals a table from the given deck with placeCardsWithSet, and checks that the table has a set, that the table
+     * and the deck together hold exactly the cards of the deck, and that the rest of the deck keeps its order.
+     *
+     * @param dealerUtil - the utility of the dealer (the table always uses the real one).
+     * @return - the cards left in the deck.
+     */
+    private int[] dealWithSet(Config config, Util dealerUtil, int[] cards) {
+        Table realTable = new Table(new Env(logger, config, ui, new UtilImpl(config)));
+        Dealer realDealer = new Dealer(new Env(logger, config, ui, dealerUtil), realTable, new Player[0]);
+        realDealer.deck.clear();
+        for (int card : cards)
+            realDealer.deck.addLast(card);
+
+        realDealer.placeCardsWithSet();
+
+        assertTrue(realTable.setsOnTable() >= 1);
+        assertEquals(Math.min(config.tableSize, cards.length), realTable.countCards());
+        boolean[] onTable = new boolean[config.deckSize];
+        for (int slot = 0; slot < config.tableSize; ++slot)
+            if (realTable.cardAt(slot) != -1) onTable[realTable.cardAt(slot)] = true;
+        assertEquals(realTable.countCards(), Arrays.stream(cards).filter(card -> onTable[card]).count());
+        int[] rest = realDealer.deck.toArray();
+        assertArrayEquals(Arrays.stream(cards).filter(card -> !onTable[card]).toArray(), rest);
+        return rest;
+    }
+
+    /*@post: a full shuffled deck deals a table with a set, found by completing random cards.
+     */
+    @Test
+    void placeCardsWithSet_FullDeck() {
+        Config config = config(4);
+        for (int seed = 0; seed < 20; ++seed)
+            dealWithSet(config, new UtilImpl(config), shuffledDeck(config, seed));
+    }
+
+    /*@post: a deck with few sets deals a table with a set when completing random cards never succeeds, so the dealer
+     *       falls back to the set finder.
+     */
+    @Test
+    void placeCardsWithSet_FewSetsUseTheSetFinder() {
+        Config config = config(4);
+        UtilImpl util = new UtilImpl(config);
+        Util noCompletions = new UtilImpl(config) {
+            @Override
+            public int completeSet(int[] cards) {
+                return -1;
+            }
+        };
+        for (int seed = 0; seed < 20; ++seed) {
+            // a maximal collection of cards without a set (so any other card makes a set), plus one more card
+            List<Integer> deck = new ArrayList<>();
+            int extra = -1;
+            for (int card : shuffledDeck(config, seed)) {
+                deck.add(card);
+                if (!util.findSets(deck, 1).isEmpty()) {
+                    deck.remove(deck.size() - 1);
+                    if (extra == -1) extra = card;
+                }
+            }
+            deck.add(deck.size() / 2, extra);
+            int[] cards = deck.stream().mapToInt(Integer::intValue).toArray();
+            assertTrue(cards.length > config.tableSize);
+
+            dealWithSet(config, noCompletions, cards);
+        }
+    }
+
+    /*@post: a table of more cards than the largest collection without a set (9 cards for 3 features) is dealt from
+     *       the top of the deck.
+     */
+    @Test
+    void placeCardsWithSet_MoreCardsThanACapSet() {
+        Config config = config(3);
+        int[] cards = shuffledDeck(config, 1);
+
+        int[] rest = dealWithSet(config, new UtilImpl(config), cards);
+        assertArrayEquals(Arrays.copyOfRange(cards, config.tableSize, cards.length), rest);
+    }
+
+    /*@post: a deck of fewer cards than the table is dealt entirely.
+     */
+    @Test
+    void placeCardsWithSet_DeckSmallerThanTheTable() {
+        Config config = config(4);
+        int[] cards = {10, 0, 20, 30, 1, 40, 2, 50}; // 0, 1 and 2 differ only in the last feature, so they are a set
+
+        int[] rest = dealWithSet(config, new UtilImpl(config), cards);
+        assertEquals(0, rest.length);
+    }
 }
\ No newline at end of file
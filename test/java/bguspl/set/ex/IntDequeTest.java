@@ -0,0 +1,67 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class IntDequeTest {
+
+    IntDeque deque;
+
+    @BeforeEach
+    void setUp() {
+        deque = new IntDeque(4);
+    }
+
+    @Test
+    void removeFirst_WrapsAroundTheBuffer() {
+
+        for (int i = 0; i < 4; ++i)
+            deque.addLast(i);
+        assertEquals(0, deque.removeFirst());
+        assertEquals(1, deque.removeFirst());
+        deque.addLast(4);
+        deque.addLast(5);
+
+        assertArrayEquals(new int[]{2, 3, 4, 5}, deque.toArray());
+        assertEquals(5, deque.removeLast());
+        assertEquals(2, deque.removeFirst());
+        assertEquals(2, deque.size());
+    }
+
+    @Test
+    void addFirst_PutsElementAtTheFront() {
+
+        deque.addLast(1);
+        deque.addFirst(0);
+
+        assertEquals(0, deque.get(0));
+        assertEquals(1, deque.get(1));
+    }
+
+    /*@post: the shuffled deque holds the same elements, and the same seed gives the same order.
+     */
+    @Test
+    void shuffle_KeepsElementsAndIsReproducible() {
+
+        IntDeque other = new IntDeque(4);
+        for (int i = 0; i < 4; ++i) {
+            deque.addLast(i);
+            other.addLast(i);
+        }
+        deque.shuffle(new Random(7));
+        other.shuffle(new Random(7));
+
+        int[] shuffled = deque.toArray();
+        assertArrayEquals(other.toArray(), shuffled);
+        Arrays.sort(shuffled);
+        assertArrayEquals(new int[]{0, 1, 2, 3}, shuffled);
+        assertFalse(deque.isEmpty());
+    }
+}
@@ -0,0 +1,53 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyQueueTest {
+
+    @Test
+    void poll_ReturnsThePressesInOrder() {
+
+        KeyQueue queue = new KeyQueue(3, 12, false);
+        for (int round = 0; round < 3; ++round) { // wraps around the buffer
+            assertTrue(queue.press(4));
+            assertTrue(queue.press(7));
+            assertEquals(4, queue.poll());
+            assertEquals(7, queue.poll());
+        }
+        assertEquals(-1, queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void press_DropsWhenFull() {
+
+        KeyQueue queue = new KeyQueue(3, 12, false);
+        for (int slot = 0; slot < 3; ++slot)
+            assertTrue(queue.press(slot));
+
+        assertFalse(queue.press(5));
+        assertEquals(3, queue.size());
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertEquals(-1, queue.poll());
+    }
+
+    @Test
+    void press_CoalescesWhenFull() {
+
+        KeyQueue queue = new KeyQueue(1, 12, true);
+        queue.press(0);
+        queue.press(9);
+        queue.press(2);
+        queue.press(9); // cancels the first overflowing press of slot 9
+
+        assertEquals(2, queue.size());
+        assertEquals(0, queue.poll());
+        assertEquals(2, queue.poll());
+        assertEquals(-1, queue.poll());
+    }
+}
@@ -4,21 +4,28 @@ import bguspl.set.Config;
 import bguspl.set.Env;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TableTest {
 
     Table table;
+    private Config config;
+    private MockLogger logger;
     private Integer[] slotToCard;
     private Integer[] cardToSlot;
+    private int slots;
 
     @BeforeEach
     void setUp() {
@@ -31,36 +38,33 @@ class TableTest {
         properties.put("TableDelaySeconds", "0");
         properties.put("PlayerKeys1", "81,87,69,82");
         properties.put("PlayerKeys2", "85,73,79,80");
-        MockLogger logger = new MockLogger();
-        Config config = new Config(logger, properties);
+        logger = new MockLogger();
+        config = new Config(logger, properties);
         slotToCard = new Integer[config.tableSize];
         cardToSlot = new Integer[config.deckSize];
+        slots = config.tableSize;
 
         Env env = new Env(logger, config, new MockUserInterface(), new MockUtil());
         table = new Table(env, slotToCard, cardToSlot);
     }
 
     private int fillSomeSlots() {
-        slotToCard[1] = 3;
-        slotToCard[2] = 5;
-        cardToSlot[3] = 1;
-        cardToSlot[5] = 2;
+        table.placeCard(3, 1);
+        table.placeCard(5, 2);
 
         return 2;
     }
 
     private void fillAllSlots() {
-        for (int i = 0; i < slotToCard.length; ++i) {
-            slotToCard[i] = i;
-            cardToSlot[i] = i;
-        }
+        for (int i = 0; i < slots; ++i)
+            table.placeCard(i, i);
     }
 
     private void placeSomeCardsAndAssert() throws InterruptedException {
         table.placeCard(8, 2);
 
-        assertEquals(8, (int) slotToCard[2]);
-        assertEquals(2, (int) cardToSlot[8]);
+        assertEquals(8, table.cardAt(2));
+        assertEquals(2, table.slotOf(8));
     }
 
     @Test
@@ -80,7 +84,7 @@ class TableTest {
     void countCards_AllSlotsAreFilled() {
 
         fillAllSlots();
-        assertEquals(slotToCard.length, table.countCards());
+        assertEquals(slots, table.countCards());
     }
 
     @Test
@@ -96,6 +100,36 @@ class TableTest {
         placeSomeCardsAndAssert();
     }
 
+    @Test
+    void constructor_SlotsFilledBeforehand() {
+
+        slotToCard[1] = 3;
+        cardToSlot[3] = 1;
+        table = new Table(new Env(logger, config, new MockUserInterface(), new MockUtil()), slotToCard, cardToSlot);
+
+        assertEquals(1, table.countCards());
+        assertEquals(3, table.cardAt(1));
+        assertEquals(-1, table.cardAt(0));
+    }
+
+    @Test
+    void setsOnTable_PlaceAndDiscardASet() {
+
+        table = new Table(new Env(logger, config, new MockUserInterface(), new UtilImpl(config)), slotToCard, cardToSlot);
+        int setsInPlay = table.setsInPlay();
+
+        // cards 0, 1 and 2 differ only in their last feature, so together they form a set
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        assertEquals(0, table.setsOnTable());
+        table.placeCard(2, 2);
+        assertEquals(1, table.setsOnTable());
+
+        table.discardCard(2);
+        assertEquals(0, table.setsOnTable());
+        assertTrue(table.setsInPlay() < setsInPlay);
+    }
+
     static class MockUserInterface implements UserInterface {
         @Override
         public void dispose() {}
@@ -129,6 +163,11 @@ class TableTest {
             return new int[0];
         }
 
+        @Override
+        public int cardFeature(int card, int feature) {
+            return 0;
+        }
+
         @Override
         public int[][] cardsToFeatures(int[] cards) {
             return new int[0][];
@@ -139,11 +178,25 @@ class TableTest {
             return false;
         }
 
+        @Override
+        public int completeSet(int[] cards) {
+            return -1;
+        }
+
         @Override
         public List<int[]> findSets(List<Integer> deck, int count) {
             return null;
         }
 
+        @Override
+        public List<int[]> findSets(int[] deck, int count) {
+            return null;
+        }
+
+        @Override
+        public int setsInDeck() {
+            return 0;
+        }
         @Override
         public void spin() {}
     }
@@ -154,20 +207,96 @@ class TableTest {
         // tests removing card from the table.
         fillAllSlots();
         int slot = 1;
-        int card = slotToCard[slot];
+        int card = table.cardAt(slot);
         table.removeCard(slot);
-        assertTrue(cardToSlot[card] == null, "the card removed from the table.");
+        assertTrue(table.slotOf(card) == -1, "the card removed from the table.");
     }
 /*@post: after removing the card, the number of cards on the table must be smaller by one.*/
     @Test
     void numberOfCardsAfterRemovingOneCard(){
         // tests that the number of cards on the table after removing card.
         removeCard();
-        int expectedCards = slotToCard.length - 1;
+        int expectedCards = slots - 1;
         int actual = table.countCards();
         assertEquals(expectedCards, actual);
     }
 
+/*@post: the snapshot holds the card in each slot, and -1 in the empty slots.*/
+    @Test
+    void snapshot_CopiesTheCardsOnTheTable(){
+        fillSomeSlots();
+        int[] cards = new int[slots];
+        table.snapshot(cards);
+        for (int slot = 0; slot < slots; ++slot)
+            assertEquals(table.cardAt(slot), cards[slot]);
+        assertEquals(3, cards[1]);
+        assertEquals(-1, cards[0]);
+    }
+
+/*@post: every snapshot taken while the dealer keeps replacing the cards is a state of the table between two changes.*/
+    @Test
+    void snapshot_IsConsistentWhileCardsChange() throws InterruptedException {
+        for (int slot = 0; slot < slots; ++slot)
+            table.placeCard(slot, slot);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread dealer = new Thread(() -> {
+            for (int generation = 1; !done.get(); ++generation)
+                for (int slot = slots - 1; slot >= 0; --slot) { // the opposite order of the snapshot's copy
+                    table.removeCard(slot);
+                    table.placeCard(slot + generation % 3 * slots, slot);
+                }
+        });
+        dealer.start();
+        int[] cards = new int[slots];
+        try {
+            for (int i = 0; i < 200_000; ++i) {
+                table.snapshot(cards);
+                assertTrue(isState(cards), "torn snapshot " + Arrays.toString(cards));
+            }
+        } finally {
+            done.set(true);
+            dealer.join();
+        }
+    }
+
+    /**
+     * @return - true iff the cards are a state of the table in snapshot_IsConsistentWhileCardsChange: for some slot b,
+     *           the slots above b hold the cards of one generation, the slots below b hold the cards of the previous
+     *           generation, and slot b holds either one or is empty.
+     */
+    private boolean isState(int[] cards) {
+        for (int generation = 0; generation < 3; ++generation)
+            for (int b = 0; b < slots; ++b) {
+                boolean state = true;
+                for (int slot = 0; slot < slots; ++slot) {
+                    int previous = slot + generation * slots;
+                    int next = slot + (generation + 1) % 3 * slots;
+                    if (slot < b) state &= cards[slot] == previous;
+                    else if (slot > b) state &= cards[slot] == next;
+                    else state &= cards[slot] == -1 || cards[slot] == previous || cards[slot] == next;
+                }
+                if (state) return true;
+            }
+        return false;
+    }
+
+/*@post: removing the tokens of a slot removes them for all players, and only from that slot.*/
+    @Test
+    void removeTokens_ClearsTheSlotForAllPlayers(){
+        fillAllSlots();
+        table.placeToken(0, 1);
+        table.placeToken(0, 2);
+        table.placeToken(1, 2);
+
+        table.removeTokens(2);
+        assertFalse(table.hasToken(0, 2));
+        assertFalse(table.hasToken(1, 2));
+        assertTrue(table.hasToken(0, 1));
+        assertEquals(1L << 1, table.tokens(0));
+        assertEquals(0, table.countTokens(1));
+        assertFalse(table.removeToken(1, 2), "the player has no token left on the slot");
+    }
+
     static class MockLogger extends Logger {
         protected MockLogger() {
             super("", null);